@@ -0,0 +1,158 @@
+package clics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import model.*;
+import web.BinaryWriter;
+
+/**
+ * Compact binary encoding of the scoreboard published by {@link ExtendedScoreDump}, for
+ * overlays that poll it several times a second. It carries the same information as the
+ * JSON document at /scoreboard and is served at /scoreboard.bin.
+ * <p>
+ * Integers are unsigned LEB128 varints unless noted as zigzag. Strings are a varint
+ * byte length followed by UTF-8 (see {@link BinaryWriter}). The layout is:
+ * <pre>
+ * header
+ *   4 bytes   magic "KSB" followed by the format version, currently 2
+ *   varint    read model version; increases whenever the scoreboard may have changed
+ *   zigzag    contest time in minutes (the JSON "contestTime")
+ *   varint    number of problems P, then P times:
+ *     string  problem id
+ *     string  problem label
+ *   varint    number of languages L, then L strings; rows refer to them by index + 1,
+ *             with 0 meaning no language
+ *   varint    number of rows T
+ * T rows, in ranking order
+ *   string    team id
+ *   varint    rank
+ *   varint    number of solved problems
+ *   zigzag    total time including penalty
+ *   varint    main language (index + 1, or 0)
+ *   P cells, in the order of the problem table
+ *     byte    flags: 1 solved, 2 has potential rank, 4 has "before", 8 has language
+ *     varint  number of judged submissions
+ *     zigzag  time contributed to the score
+ *     zigzag  minute of the last relevant submission, 0 if none
+ *     varint  potential rank if the problem were solved now (only with flag 2)
+ *     zigzag  penalty minutes ahead of the team at that rank (only with flag 4)
+ *     varint  language of the problem (index + 1, only with flag 8)
+ * </pre>
+ * Times are zigzag encoded because submissions made before the contest start have negative
+ * minutes. web/scoreboard-binary.js contains a decoder that returns the JSON layout.
+ */
+public class BinaryScoreDump {
+	public static final String ContentType = "application/vnd.katalyzer.scoreboard";
+	public static final int FormatVersion = 2;
+
+	static final byte[] Magic = "KSB".getBytes(StandardCharsets.US_ASCII);
+	static final int Solved = 1;
+	static final int HasPotential = 2;
+	static final int HasBefore = 4;
+	static final int HasLanguage = 8;
+
+	/* Reused between publications */
+	final BinaryWriter writer = new BinaryWriter(16 * 1024);
+	final Map<String, Integer> languages = new LinkedHashMap<String, Integer>();
+
+	public byte[] encode(ReadModel model, int minutesFromStart) {
+		return encode(model, model.getStandings(), minutesFromStart);
+	}
+
+	public byte[] encode(ReadModel model, Standings standings, int minutesFromStart) {
+		List<Problem> problems = model.getProblems();
+		collectLanguages(model, standings, problems);
+
+		writer.reset().writeBytes(Magic).writeByte(FormatVersion);
+		writer.varint(model.getVersion());
+		writer.signed(model.getMinutesFromStart());
+		writer.varint(problems.size());
+		for (Problem p : problems) {
+			writer.string(p.getId());
+			writer.string(p.getLabel());
+		}
+		writer.varint(languages.size());
+		for (String language : languages.keySet()) {
+			writer.string(language);
+		}
+
+		writer.varint(standings.size());
+
+		RankOracle oracle = standings.getRankOracle();
+		// Ranks as in Standings.rankOf(), without searching for each team
+		int position = 0;
+		int rank = 0;
+		Score previous = null;
+		for (Score score : standings) {
+			position++;
+			if (!score.equals(previous)) {
+				rank = position;
+			}
+			previous = score;
+
+			Team team = score.getTeam();
+			ReadModel.TeamView view = model.viewOf(team);
+			writer.string(team.getId());
+			writer.varint(rank);
+			writer.varint(score.getNumberOfSolvedProblems());
+			writer.signed(score.getTimeIncludingPenalty());
+			writer.varint(languageIndex(view.getMainLanguage()));
+
+			for (Problem p : problems) {
+				boolean isSolved = score.isSolved(p);
+				int potentialRank = 0;
+				OptionalInt before = OptionalInt.empty();
+				if (!isSolved) {
+					ScoreTableEntry fake = FakeScore.PretendProblemSolved(score, p, minutesFromStart);
+					int fakeIndex = oracle.entriesAhead(fake);
+					potentialRank = fakeIndex + 1;
+					before = oracle.marginAt(fakeIndex, fake);
+				}
+				int language = languageIndex(view.languageFor(p));
+
+				int flags = (isSolved ? Solved : HasPotential)
+						| (before.isPresent() ? HasBefore : 0)
+						| (language != 0 ? HasLanguage : 0);
+				writer.writeByte(flags);
+				writer.varint(score.submissionCount(p));
+				writer.signed(score.scoreContribution(p));
+				writer.signed(score.lastSubmissionTime(p));
+				if (!isSolved) {
+					writer.varint(potentialRank);
+				}
+				if (before.isPresent()) {
+					writer.signed(before.getAsInt());
+				}
+				if (language != 0) {
+					writer.varint(language);
+				}
+			}
+		}
+		return writer.toByteArray();
+	}
+
+	private void collectLanguages(ReadModel model, Standings standings, List<Problem> problems) {
+		languages.clear();
+		for (Score score : standings) {
+			ReadModel.TeamView view = model.viewOf(score.getTeam());
+			addLanguage(view.getMainLanguage());
+			for (Problem p : problems) {
+				addLanguage(view.languageFor(p));
+			}
+		}
+	}
+
+	private void addLanguage(String language) {
+		if (language != null && !languages.containsKey(language)) {
+			languages.put(language, languages.size() + 1);
+		}
+	}
+
+	private int languageIndex(String language) {
+		return (language == null) ? 0 : languages.get(language);
+	}
+}
@@ -1,207 +1,287 @@
 package clics;
 
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
 
 import model.*;
-import net.sf.json.JSON;
-import net.sf.json.JSONArray;
-import net.sf.json.JSONObject;
 
 import org.apache.log4j.Logger;
 
+import web.EncodedScoreboard;
+import web.JsonWriter;
+import web.JsonWriter.Name;
+import web.ScoreboardHistory;
 import web.StaticWebDocument;
 import web.WebPublisher;
 
 public class ExtendedScoreDump implements OutputHook, StandingsPublisher {
 	static final Logger log = Logger.getLogger(ExtendedScoreDump.class);
 
+	static final Name RANK = new Name("rank");
+	static final Name MAIN_LANG = new Name("main_lang");
+	static final Name SCORE = new Name("score");
+	static final Name NUM_SOLVED = new Name("num_solved");
+	static final Name TOTAL_TIME = new Name("total_time");
+	static final Name PROBLEM_ID = new Name("problem_id");
+	static final Name LABEL = new Name("label");
+	static final Name NUM_JUDGED = new Name("num_judged");
+	static final Name SOLVED = new Name("solved");
+	static final Name TIME = new Name("time");
+	static final Name LAST_UPD = new Name("lastUpd");
+	static final Name POTENTIAL = new Name("potential");
+	static final Name BEFORE = new Name("before");
+	static final Name LANG = new Name("lang");
+	static final Name CONTEST_TIME = new Name("contestTime");
+
+	static final Name ID = new Name("id");
+	static final Name NAME = new Name("name");
+	static final Name WEBCAMS = new Name("webcams");
+	static final Name DESKTOPS = new Name("desktops");
+	static final Name ORGANIZATION = new Name("organization");
+	static final Name DISPLAYNAME = new Name("displayname");
+
+	static final byte[] EmptyArray = "[]".getBytes(StandardCharsets.US_ASCII);
+
 	final Contest contest;
 	final WebPublisher publisherTarget;
-	final static ScoreTableComparer comparator = new ScoreTableComparer();
+	final ScoreboardHistory history;
+
+	/* Reused between publications, so a scoreboard costs one copy of its bytes */
+	final JsonWriter writer = new JsonWriter(64 * 1024);
+	final BinaryScoreDump binary = new BinaryScoreDump();
+
+	final DocumentGraph.Node scoreboardDocument;
+	final DocumentGraph.Node teamsDocument;
+	int scoreboardMinutes = -1;
+
+	/* What each group scoreboard was last generated from */
+	final Map<String, ReadModel.GroupView> publishedGroups = new HashMap<String, ReadModel.GroupView>();
+	List<Problem> publishedGroupProblems = null;
+	int publishedGroupMinutes = -1;
 
 	class ScoreDumper {
+		final ReadModel model;
 		Standings standings;
 		int minutesFromStart;
-		ArrayList<Score> scoresAbove = new ArrayList<Score>();
+		final RankOracle oracle;
+		final EncodedScoreboard.Builder rows;
+
 
+		public ScoreDumper(ReadModel model, int minutesFromStart) {
+			this(model, model.getStandings(), minutesFromStart);
+		}
 
-		public ScoreDumper(Standings standings, int minutesFromStart) {
+		/**
+		 * Dumps a subset of the model's standings, ranked among themselves.
+		 */
+		public ScoreDumper(ReadModel model, Standings standings, int minutesFromStart) {
+			this.model = model;
 			this.standings = standings;
 			this.minutesFromStart = minutesFromStart;
+			this.oracle = standings.getRankOracle();
+			this.rows = new EncodedScoreboard.Builder(writer, model.getProblems().size());
 		}
 
-		public JSONObject dumpScore(Score score) {
+		public void dumpScore(Score score, boolean isFirstScore) {
 
 			Team team = score.getTeam();
-
-			JSONArray problems = new JSONArray();
-
-			int place = scoresAbove.size();
-			for (Problem p : contest.getProblems()) {
+			ReadModel.TeamView view = model.viewOf(team);
+
+			rows.beginRow(team.getId());
+			rows.beginField(RANK);
+			writer.value(standings.rankOf(team));
+			rows.endField();
+			rows.beginField(EncodedScoreboard.TeamId);
+			writer.value(team.getId());
+			rows.endField();
+			String mainLanguage = view.getMainLanguage();
+			if (mainLanguage != null) {
+				rows.beginField(MAIN_LANG);
+				writer.value(mainLanguage);
+				rows.endField();
+			}
+			rows.beginField(SCORE);
+			writer.beginObject()
+				.field(NUM_SOLVED, score.getNumberOfSolvedProblems())
+				.field(TOTAL_TIME, score.getTimeIncludingPenalty())
+				.endObject();
+			rows.endField();
+
+			rows.beginField(EncodedScoreboard.Problems);
+			writer.beginArray();
+			for (Problem p : model.getProblems()) {
 				boolean isSolved = score.isSolved(p);
-				JSONObject problemInfo = new JSONObject()
-					.element("problem_id", p.getId())
-					.element("label", p.getLabel())
-					.element("num_judged", score.submissionCount(p))
-// FIXME:			.element("num_pending", score.submissionCount(p))
-					.element("solved", isSolved)
-					.element("time", score.scoreContribution(p));
+				rows.beginCell(p.getId());
+				writer.field(PROBLEM_ID, p.getId())
+					.field(LABEL, p.getLabel())
+					.field(NUM_JUDGED, score.submissionCount(p))
+// FIXME:			.field(NUM_PENDING, score.submissionCount(p))
+					.field(SOLVED, isSolved)
+					.field(TIME, score.scoreContribution(p));
 
                 int lastSubmissionTime = score.lastSubmissionTime(p);
                 if (lastSubmissionTime != 0) {
-                    problemInfo = problemInfo.element("lastUpd", lastSubmissionTime);
+                    writer.field(LAST_UPD, lastSubmissionTime);
                 }
 
 				if (!isSolved) {
 					ScoreTableEntry fake = FakeScore.PretendProblemSolved(score, p, minutesFromStart);
-					JSONObject potential = new JSONObject();
-					place = calcFictiousRank(scoresAbove, fake, place, potential);
-					problemInfo = problemInfo.element("potential", potential);
+					writer.name(POTENTIAL).beginObject();
+					calcFictiousRank(fake);
+					writer.endObject();
 				}
-				String language = team.languageFor(p);
+				String language = view.languageFor(p);
 				if (language != null) {
-					problemInfo = problemInfo.element("lang", language);
+					writer.field(LANG, language);
 				}
-				problems.add(problemInfo);
+				rows.endCell();
 			}
+			writer.endArray();
+			rows.endField();
 
-
-			JSONObject target = new JSONObject()
-				.element("rank", standings.rankOf(team))
-				.element("team_id", team.getId())
-				.element("main_lang", team.getMainLanguage())
-				.element("score", new JSONObject()
-					.element("num_solved", score.getNumberOfSolvedProblems())
-					.element("total_time", score.getTimeIncludingPenalty()))
-				.element("problems", problems);
-
-			return target;
-		}
-
-		private JSONArray getProblems(Contest contest) {
-			JSONArray result = new JSONArray();
-
-			for (Problem p : contest.getProblems()) {
-				JSONObject problemInfo = new JSONObject()
-					.element("tag", p.getLabel())
-					.element("name", p.getNameAndLabel());
-				result.add(problemInfo);
+			if (isFirstScore) {
+				rows.beginField(CONTEST_TIME);
+				writer.value(model.getMinutesFromStart());
+				rows.endField();
 			}
-
-			return result;
-		}
-
-		private JSONObject getContestInfo(Contest contest) {
-			return new JSONObject()
-				.element("length", contest.getLengthInMinutes())
-				.element("problems", getProblems(contest))
-				.element("submissions", contest.getSubmissionCount())
-				.element("time", contest.getMinutesFromStart());
+			rows.endRow();
 		}
 
-		public JSONArray execute() {
-			scoresAbove.clear();
+		public EncodedScoreboard execute() {
 			boolean isFirstScore = true;
 
-			JSONArray resultArray = new JSONArray();
-			ArrayList<JSONObject> jsonScores = new ArrayList<JSONObject>();
-
+			writer.reset().beginArray();
 			for (Score score : standings) {
-				scoresAbove.add(score);
-				JSONObject scoreRow = dumpScore(score);
-				if (isFirstScore) {
-					scoreRow.put("contestTime", contest.getMinutesFromStart());
-					isFirstScore = false;
-				}
-				jsonScores.add(scoreRow);
+				dumpScore(score, isFirstScore);
+				isFirstScore = false;
 			}
+			writer.endArray();
 
-			resultArray.addAll(jsonScores);
-
-			return resultArray;
+			return rows.build();
 		}
 
-		private int calcFictiousRank(ArrayList<Score> scoresAbove,
-									 ScoreTableEntry fake, int startFrom, JSONObject result) {
-
-			int fakeIndex = startFrom;
-
-			while (fakeIndex > 0 && comparator.compare(fake, scoresAbove.get(fakeIndex - 1)) <= 0) {
-				fakeIndex--;
+		private void calcFictiousRank(ScoreTableEntry fake) {
+			int fakeIndex = oracle.entriesAhead(fake);
+			writer.field(RANK, fakeIndex + 1);
+			OptionalInt margin = oracle.marginAt(fakeIndex, fake);
+			if (margin.isPresent()) {
+				writer.field(BEFORE, margin.getAsInt());
 			}
-			while (fakeIndex < scoresAbove.size() && comparator.compare(fake, scoresAbove.get(fakeIndex)) > 0) {
-				fakeIndex++;
-			}
-			int margin = -1;
-			result.element("rank", fakeIndex + 1);
-			if (fakeIndex < scoresAbove.size()) {
-				ScoreTableEntry next = scoresAbove.get(fakeIndex);
-				if (next.getNumberOfSolvedProblems() == fake.getNumberOfSolvedProblems()) {
-					margin = next.getTimeIncludingPenalty() - fake.getTimeIncludingPenalty();
-					result.element("before", margin);
-				}
-			}
-			return fakeIndex;
 		}
 
 
 	}
 
 	public ExtendedScoreDump(Contest contest, WebPublisher target) {
+		this(contest, target, null);
+	}
+
+	public ExtendedScoreDump(Contest contest, WebPublisher target, ScoreboardHistory history) {
 		this.contest = contest;
 		this.publisherTarget = target;
-	}
+		this.history = history;
 
-	private JSONArray stringsAsJson(String[] input) {
-		JSONArray target = new JSONArray();
-		for (String desktopUrl : input) {
-			target.add(desktopUrl);
-		}
-		return target;
+		DocumentGraph documents = contest.getAnalyzer().getDocumentGraph();
+		this.scoreboardDocument = documents.register("/scoreboard", ModelFacet.Standings, ModelFacet.Teams, ModelFacet.Problems, ModelFacet.ContestState);
+		this.teamsDocument = documents.register("/teams", ModelFacet.Teams);
 	}
 
-	private JSONObject teamAsJson(Team team) {
-		JSONObject target = new JSONObject();
-		target.put("id", team.getId());
-		target.put("name", team.getName());
-
-		target.put("webcams", team.getVideoLinks());
-		target.put("desktops", team.getDesktopLinks());
+	private void writeTeam(Team team) {
+		writer.beginObject()
+			.field(ID, team.getId())
+			.field(NAME, team.getName())
+			.field(WEBCAMS, team.getVideoLinks())
+			.field(DESKTOPS, team.getDesktopLinks());
 
 		Organization org = team.getOrganization();
 		if (org != null) {
-            target.put("organization", org.getFullName());
-            target.put("displayname", org.getDisplayName());
+            writer.field(ORGANIZATION, org.getFullName());
+            writer.field(DISPLAYNAME, org.getDisplayName());
         }
-		return target;
+		writer.endObject();
 	}
 
-	public JSONArray getAllTeams() {
-		JSONArray target = new JSONArray();
-		Team[] allTeams = contest.getTeams();
-		for (Team team : allTeams) {
-			target.add(teamAsJson(team));
+	public byte[] getAllTeams() {
+		writer.reset().beginArray();
+		for (Team team : contest.getReadModel().getTeams()) {
+			writeTeam(team);
 		}
-		return target;
+		return writer.endArray().toByteArray();
 	}
 
 	public void publishStandings() {
-		execute(contest.getMinutesFromStart());
+		execute(contest.getReadModel().getMinutesFromStart());
 	}
 
+	@Override
+	public void standingsChanged() {
+		// Only worth publishing ahead of the regular interval if someone is waiting for pushed changes
+		if (history != null && history.hasListeners()) {
+			publishStandings();
+		}
+	}
+
+
+	/**
+	 * Publishes /scoreboard/group/&lt;id&gt; for each group, but only for groups whose standings
+	 * changed, unless the problems or the minute (which potential ranks depend on) moved.
+	 * Groups that disappeared from the model get an empty scoreboard.
+	 */
+	private void publishGroups(ReadModel model, int minutesFromStart) {
+		boolean all = model.getProblems() != publishedGroupProblems || minutesFromStart != publishedGroupMinutes;
+		for (ReadModel.GroupView group : model.getGroups()) {
+			String groupId = group.getGroup().getId();
+			if (!all && publishedGroups.get(groupId) == group) {
+				continue;
+			}
+			EncodedScoreboard groupTable = new ScoreDumper(model, group.getStandings(), minutesFromStart).execute();
+			publisherTarget.publish("/scoreboard/group/" + groupId, new StaticWebDocument("application/json", groupTable.getBytes()));
+			publishedGroups.put(groupId, group);
+		}
+		// A group whose last visible team was hidden or moved has no standings any more
+		Iterator<String> published = publishedGroups.keySet().iterator();
+		while (published.hasNext()) {
+			String groupId = published.next();
+			if (model.getGroup(groupId) == null) {
+				publisherTarget.publish("/scoreboard/group/" + groupId, new StaticWebDocument("application/json", EmptyArray));
+				published.remove();
+			}
+		}
+		publishedGroupProblems = model.getProblems();
+		publishedGroupMinutes = minutesFromStart;
+	}
 
 	@Override
-	public void execute(int minutesFromStart) {
-		log.debug("preparing Standings... ");
+	public synchronized void execute(int minutesFromStart) {
+		// Potential ranks depend on the minute as well as on the model
+		if (minutesFromStart != scoreboardMinutes) {
+			scoreboardDocument.invalidate();
+			scoreboardMinutes = minutesFromStart;
+		}
 
-		ScoreDumper scoreDumper = new ScoreDumper(contest.getStandings(), minutesFromStart);
-		JSON scoreTable = scoreDumper.execute();
+		scoreboardDocument.refresh(() -> {
+			log.debug("preparing Standings... ");
 
-		log.debug("publishing Standings... ");
+			ReadModel model = contest.getReadModel();
+			ScoreDumper scoreDumper = new ScoreDumper(model, minutesFromStart);
+			EncodedScoreboard scoreTable = scoreDumper.execute();
 
-		publisherTarget.publish("/scoreboard", new StaticWebDocument(scoreTable));
-		publisherTarget.publish("/teams", new StaticWebDocument(getAllTeams()));
+			log.debug("publishing Standings... ");
+
+			if (history != null) {
+				history.update(scoreTable);
+			}
+			publisherTarget.publish("/scoreboard", new StaticWebDocument("application/json", scoreTable.getBytes()));
+			publisherTarget.publish("/scoreboard.bin", new StaticWebDocument(BinaryScoreDump.ContentType, binary.encode(model, minutesFromStart)));
+			publishGroups(model, minutesFromStart);
+		});
 
+		teamsDocument.refresh(() ->
+			publisherTarget.publish("/teams", new StaticWebDocument("application/json", getAllTeams())));
 	}
 
 
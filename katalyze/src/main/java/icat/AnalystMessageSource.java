@@ -1,22 +1,24 @@
 package icat;
 
 
-import java.sql.Connection;
-import java.sql.ResultSet;
 import java.util.ArrayList;
-import java.sql.PreparedStatement;
 
+import io.CommentaryStore;
+import io.MySqlCommentaryStore;
 import katalyzeapp.DatabaseNotificationConfig;
 
 public class AnalystMessageSource {
-	DatabaseNotificationConfig config;
-	Connection db;
+	final CommentaryStore store;
 	final String NoExportHashTag = "#int";
 	int lastReadMessageId = -1;
 	
 	
 	public AnalystMessageSource(DatabaseNotificationConfig config) {
-		this.config = config;
+		this(new MySqlCommentaryStore(config));
+	}
+
+	public AnalystMessageSource(CommentaryStore store) {
+		this.store = store;
 	}
 	
 	public void open() throws Exception {
@@ -24,44 +26,32 @@ public class AnalystMessageSource {
 	}
 	
 	public ArrayList<AnalystMessage> getNewMessages(int contestTime) throws Exception {
-		db = config.createConnection();
-		try {
-			PreparedStatement s = db.prepareStatement("select * from entries where user <> 'katalyzer' and contest_time <= ? and id > ?");
-			s.setInt(1, contestTime);
-			s.setInt(2, lastReadMessageId);
-			ResultSet results = s.executeQuery();
+		ArrayList<AnalystMessage> messages = new ArrayList<AnalystMessage>();
+		for (AnalystMessage message : store.getAnalystMessages(lastReadMessageId, contestTime)) {
+			if (message.id > lastReadMessageId) {
+				lastReadMessageId = message.id;
+			}
+			
+			// Don't export if the message is only for internal analyst use
+			String lowerCaseMessageText = message.text.toLowerCase();				
+			if (lowerCaseMessageText.contains(NoExportHashTag)) {
+				continue;
+			}
 
-			ArrayList<AnalystMessage> messages = new ArrayList<AnalystMessage>();
-			while (results.next()) {
-				AnalystMessage message = AnalystMessage.fromSQL(results);
-				if (message.id > lastReadMessageId) {
-					lastReadMessageId = message.id;
-				}
-				
-				// Don't export if the message is only for internal analyst use
-				String lowerCaseMessageText = message.text.toLowerCase();				
-				if (lowerCaseMessageText.contains(NoExportHashTag)) {
-					continue;
-				}
 
-	
-				if (message.contestTime == 0) {
-					continue;
-				}
-				
-				// Don't replicate any messages when the scoreboard is frozen
-				// ORLY?
-				// if (message.contestTime >= 240) {
-				// 	 continue;
-				// }
-				
-				messages.add(message);
+			if (message.contestTime == 0) {
+				continue;
 			}
-			return messages;
-		}
-		finally {
-			db.close();
+			
+			// Don't replicate any messages when the scoreboard is frozen
+			// ORLY?
+			// if (message.contestTime >= 240) {
+			// 	 continue;
+			// }
+			
+			messages.add(message);
 		}
+		return messages;
 	}
 
 }
@@ -0,0 +1,25 @@
+package io;
+
+import icat.AnalystMessage;
+
+import java.util.List;
+
+/**
+ * Persistent storage for commentary entries and judged submissions. Implementations report a
+ * duplicate key by throwing an exception whose message contains "Duplicate entry", like MySQL does.
+ */
+public interface CommentaryStore {
+
+	void addEntry(int contestTime, String user, String text, int priority, String submissionId) throws Exception;
+
+	void addSubmission(String problemLabel, String teamId, String language, String result, String date,
+					   int contestTime, String submissionId) throws Exception;
+
+	/**
+	 * Entries not written by the katalyzer itself, with an id above afterId and a contest time
+	 * (in minutes) of at most maxContestTime.
+	 */
+	List<AnalystMessage> getAnalystMessages(int afterId, int maxContestTime) throws Exception;
+
+	void close() throws Exception;
+}
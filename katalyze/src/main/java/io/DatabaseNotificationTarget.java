@@ -4,7 +4,6 @@ import model.*;
 import org.apache.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 
 import katalyzeapp.DatabaseNotificationConfig;
 
@@ -14,49 +13,44 @@ public class DatabaseNotificationTarget implements NotificationTarget, EntityCha
 
 	Connection conn;
 	DatabaseNotificationConfig config;
+	final CommentaryStore store;
 	int suppressedMinutes = 0;
 
 	public DatabaseNotificationTarget(DatabaseNotificationConfig config) throws Exception {
+		this(new MySqlCommentaryStore(config), config);
+	}
+
+	/**
+	 * Commentary goes to the given store. Entity changes are only exported when a database
+	 * configuration is given.
+	 */
+	public DatabaseNotificationTarget(CommentaryStore store, DatabaseNotificationConfig config) throws Exception {
+		this.store = store;
 		this.config = config;
-		this.conn = config.createConnection();
+		this.conn = (config != null) ? config.createConnection() : null;
 	}
 	
+	/**
+	 * Only takes effect if called before the target is added to a router.
+	 */
 	public void suppressUntil(int contestMinutes) {
 		this.suppressedMinutes = contestMinutes;
 	}
 	
 			
 	@Override
-	public void notify(LoggableEvent event) {
-		if (event.contestTimeMinutes() < suppressedMinutes) {
-			logger.info("skipping message (due to restart): " + event.icatMessage);
-			return;
-		}
-
+	public NotificationSubscription getSubscription() {
 		// If the event already came from the database, don't write it back again.
-		if (event.supplements != null) {
-			String category = event.supplements.get("category");
-			if ("human".equals(category)) {
-				return;
-			}
-		}
+		return NotificationSubscription.all()
+				.withoutCategories("human")
+				.suppressUntil(suppressedMinutes);
+	}
 
+	@Override
+	public void notify(LoggableEvent event) {
 		try {
-			PreparedStatement s;
-			s = conn.prepareStatement("insert into entries (contest_time, user, text, priority, submission_id) values (?, ?, ?, ?, ?)");
-			s.setInt(1, event.contestTimeMinutes());
-			s.setString(2, "katalyzer");
-			s.setString(3, event.icatMessage);
-			s.setInt(4, event.importance.ordinal());
-			if (event.submission != null) {
-				s.setString(5, event.submission.id);
-			} else {
-				s.setNull(5, java.sql.Types.INTEGER);
-			}
-
-			s.executeUpdate();
-
-			logger.debug("inserted into db: " + s);
+			store.addEntry(event.contestTimeMinutes(), "katalyzer", event.icatMessage, event.importance.ordinal(),
+					(event.submission != null) ? event.submission.id : null);
 		} catch (Exception e) {
 			String errorMessage = e.getMessage();
 			String logMessage = "Error adding message to entries table: "+errorMessage;
@@ -70,6 +64,9 @@ public class DatabaseNotificationTarget implements NotificationTarget, EntityCha
 	}
 
 	public void entityChanged(ApiEntity entity, EntityOperation op) {
+		if (conn == null) {
+			return;
+		}
 		try {
 			if (entity instanceof Team) {
 				teamChanged((Team) entity, op);
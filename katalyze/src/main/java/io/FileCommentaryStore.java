@@ -0,0 +1,154 @@
+package io;
+
+import icat.AnalystMessage;
+import net.sf.json.JSONObject;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Embedded commentary store backed by an append-only file with one JSON record per line.
+ * The file is replayed on open to rebuild the in-memory indexes, so no database server is needed.
+ */
+public class FileCommentaryStore implements CommentaryStore {
+	static Logger logger = Logger.getLogger(FileCommentaryStore.class);
+
+	final File file;
+	final OutputStream output;
+
+	final TreeMap<Integer, AnalystMessage> entriesById = new TreeMap<Integer, AnalystMessage>();
+	final Set<String> submissionIds = new HashSet<String>();
+	int nextEntryId = 1;
+
+	public FileCommentaryStore(File file) throws IOException {
+		this.file = file;
+		if (file.exists()) {
+			replay();
+		}
+		this.output = new FileOutputStream(file, true);
+		logger.info(String.format("Opened %s with %d entries and %d submissions", file, entriesById.size(), submissionIds.size()));
+	}
+
+	private void replay() throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				try {
+					index(JSONObject.fromObject(line));
+				} catch (Exception e) {
+					logger.warn(String.format("Skipping unreadable record at %s:%d: %s", file, lineNumber, e));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void index(JSONObject record) {
+		String type = record.getString("type");
+		if ("entry".equals(type)) {
+			String submissionId = record.optString("submission_id", null);
+			int submissionNumber = -1;
+			if (submissionId != null) {
+				try {
+					submissionNumber = Integer.parseInt(submissionId);
+				} catch (NumberFormatException e) {
+					// Non-numeric ids can't be represented in an AnalystMessage
+				}
+			}
+
+			AnalystMessage entry = new AnalystMessage(
+					record.getInt("id"),
+					Instant.ofEpochMilli(record.getLong("date")),
+					record.getInt("contest_time"),
+					record.getInt("priority"),
+					record.getString("user"),
+					submissionNumber,
+					record.getString("text"));
+			entriesById.put(entry.id, entry);
+			nextEntryId = Math.max(nextEntryId, entry.id + 1);
+		} else if ("submission".equals(type)) {
+			submissionIds.add(record.getString("submission_id"));
+		}
+	}
+
+	private void append(JSONObject record) throws IOException {
+		output.write((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+		output.flush();
+		index(record);
+	}
+
+	@Override
+	public synchronized void addEntry(int contestTime, String user, String text, int priority, String submissionId) throws IOException {
+		JSONObject record = new JSONObject()
+				.element("type", "entry")
+				.element("id", nextEntryId)
+				.element("date", System.currentTimeMillis())
+				.element("contest_time", contestTime)
+				.element("user", user)
+				.element("text", text)
+				.element("priority", priority);
+		if (submissionId != null) {
+			record = record.element("submission_id", submissionId);
+		}
+		append(record);
+	}
+
+	@Override
+	public synchronized void addSubmission(String problemLabel, String teamId, String language, String result, String date,
+										   int contestTime, String submissionId) throws IOException {
+		if (submissionIds.contains(submissionId)) {
+			throw new IOException(String.format("Duplicate entry '%s' for submission", submissionId));
+		}
+
+		append(new JSONObject()
+				.element("type", "submission")
+				.element("problem_id", problemLabel)
+				.element("team_id", teamId)
+				.element("lang_id", language)
+				.element("result", result)
+				.element("date", date)
+				.element("contest_time", contestTime)
+				.element("submission_id", submissionId));
+	}
+
+	@Override
+	public synchronized List<AnalystMessage> getAnalystMessages(int afterId, int maxContestTime) {
+		List<AnalystMessage> target = new ArrayList<AnalystMessage>();
+		for (AnalystMessage entry : entriesById.tailMap(afterId, false).values()) {
+			if (entry.contestTime <= maxContestTime && !"katalyzer".equals(entry.user)) {
+				target.add(entry);
+			}
+		}
+		return target;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		output.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[FileCommentaryStore %s]", file);
+	}
+}
@@ -3,18 +3,26 @@ package io;
 import model.EventImportance;
 import model.InitialSubmission;
 import model.LoggableEvent;
+import model.NotificationSubscription;
 import model.NotificationTarget;
 import org.apache.log4j.Logger;
 
 public class LogNotificationTarget implements NotificationTarget {
 	
 	static Logger logger = Logger.getLogger(LogNotificationTarget.class);
+	// Logged at info level; anything else only at debug level
+	static final NotificationSubscription InfoLevel = NotificationSubscription.upTo(EventImportance.Normal);
 	final boolean useHashTags;
 	
 	public LogNotificationTarget(boolean useHashTags) {
 		this.useHashTags = useHashTags;
 	}
 
+	@Override
+	public NotificationSubscription getSubscription() {
+		return logger.isDebugEnabled() ? NotificationSubscription.all() : InfoLevel;
+	}
+
 	@Override
 	public void notify(LoggableEvent event) {
 		String messageText = useHashTags ? event.icatMessage : event.message;
@@ -23,7 +31,7 @@ public class LogNotificationTarget implements NotificationTarget {
 		String submissionId = (submission != null) ? submission.id : "-";
 
 		String fullMessage = String.format("[%d][%s] %s", event.contestTimeMinutes(), submissionId, messageText);
-		if (event.importance.ordinal() <= EventImportance.Normal.ordinal()) {
+		if (InfoLevel.accepts(event.importance, event.getCategory())) {
 			logger.info(fullMessage);
 		} else {
 			logger.debug(fullMessage);
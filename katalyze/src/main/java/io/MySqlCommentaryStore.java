@@ -0,0 +1,101 @@
+package io;
+
+import icat.AnalystMessage;
+import katalyzeapp.DatabaseNotificationConfig;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MySqlCommentaryStore implements CommentaryStore {
+	static Logger logger = Logger.getLogger(MySqlCommentaryStore.class);
+
+	final DatabaseNotificationConfig config;
+	Connection conn = null;
+
+	public MySqlCommentaryStore(DatabaseNotificationConfig config) {
+		this.config = config;
+	}
+
+	private synchronized Connection getConnection() throws Exception {
+		if (conn == null) {
+			conn = config.createConnection();
+		}
+		return conn;
+	}
+
+	@Override
+	public synchronized void addEntry(int contestTime, String user, String text, int priority, String submissionId) throws Exception {
+		PreparedStatement s = getConnection().prepareStatement("insert into entries (contest_time, user, text, priority, submission_id) values (?, ?, ?, ?, ?)");
+		s.setInt(1, contestTime);
+		s.setString(2, user);
+		s.setString(3, text);
+		s.setInt(4, priority);
+		if (submissionId != null) {
+			s.setString(5, submissionId);
+		} else {
+			s.setNull(5, java.sql.Types.INTEGER);
+		}
+
+		s.executeUpdate();
+		logger.debug("inserted into db: " + s);
+	}
+
+	@Override
+	public synchronized void addSubmission(String problemLabel, String teamId, String language, String result, String date,
+										   int contestTime, String submissionId) throws Exception {
+		PreparedStatement s = getConnection().prepareStatement("insert into submissions (problem_id, team_id, lang_id, result, date, contest_time, submission_id) values (?, ?, ?, ?, ?, ?, ?)");
+		s.setString(1, problemLabel);
+		s.setString(2, teamId);
+		s.setString(3, language);
+		s.setString(4, result);
+		s.setString(5, date);
+		s.setInt(6, contestTime);
+		s.setString(7, submissionId);
+
+		s.executeUpdate();
+		logger.debug("inserted into db: " + s);
+	}
+
+	private List<AnalystMessage> query(String sql, int first, int second) throws Exception {
+		// Use a fresh connection for reads, so entries added by analysts are always visible
+		Connection db = config.createConnection();
+		try {
+			PreparedStatement s = db.prepareStatement(sql);
+			s.setInt(1, first);
+			s.setInt(2, second);
+			ResultSet results = s.executeQuery();
+
+			List<AnalystMessage> messages = new ArrayList<AnalystMessage>();
+			while (results.next()) {
+				messages.add(AnalystMessage.fromSQL(results));
+			}
+			return messages;
+		}
+		finally {
+			db.close();
+		}
+	}
+
+	@Override
+	public List<AnalystMessage> getAnalystMessages(int afterId, int maxContestTime) throws Exception {
+		return query("select * from entries where user <> 'katalyzer' and contest_time <= ? and id > ? order by id",
+				maxContestTime, afterId);
+	}
+
+	@Override
+	public synchronized void close() throws Exception {
+		if (conn != null) {
+			conn.close();
+			conn = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("[MySqlCommentaryStore %s]", config);
+	}
+}
@@ -0,0 +1,208 @@
+package io;
+
+import model.EventImportance;
+import model.LifeCycleAware;
+import model.LoggableEvent;
+import model.NotificationSubscription;
+import model.NotificationTarget;
+import org.apache.log4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Wraps a notification target with a token bucket. The subscription excludes events less
+ * important than forwardUpTo, so they don't use up tokens. Other events are forwarded immediately
+ * while tokens are available; beyond that they are queued by importance. When a token frees up and
+ * several low priority events are waiting, they are merged into a single digest event, and
+ * events that have waited longer than maxAgeMillis are dropped.
+ */
+public class RateLimitedNotificationTarget implements NotificationTarget, LifeCycleAware {
+	static Logger logger = Logger.getLogger(RateLimitedNotificationTarget.class);
+
+	private static class QueuedEvent {
+		final LoggableEvent event;
+		final long queuedAt;
+
+		QueuedEvent(LoggableEvent event, long queuedAt) {
+			this.event = event;
+			this.queuedAt = queuedAt;
+		}
+	}
+
+	private final NotificationTarget target;
+	private final TokenBucket bucket;
+	private final long maxAgeMillis;
+	private final EventImportance forwardUpTo;
+	private final EventImportance digestFrom;
+	private final LongSupplier clock;
+	private final PriorityQueue<QueuedEvent> queue = new PriorityQueue<QueuedEvent>(
+			Comparator.<QueuedEvent>comparingInt(x -> x.event.importance.ordinal())
+					.thenComparingLong(x -> x.queuedAt)
+					.thenComparingInt(x -> x.event.id));
+	// Held while collecting and forwarding, so events reach the target in queue order
+	private final Object forwardLock = new Object();
+	private ScheduledExecutorService scheduler = null;
+	private int dropped = 0;
+	private int merged = 0;
+
+	public RateLimitedNotificationTarget(NotificationTarget target, int burst, int perHour, long maxAgeMillis,
+										 EventImportance forwardUpTo, EventImportance digestFrom) {
+		this(target, burst, perHour, maxAgeMillis, forwardUpTo, digestFrom, System::currentTimeMillis);
+	}
+
+	public RateLimitedNotificationTarget(NotificationTarget target, int burst, int perHour, long maxAgeMillis,
+										 EventImportance forwardUpTo, EventImportance digestFrom, LongSupplier clock) {
+		this.target = target;
+		this.clock = clock;
+		this.bucket = new TokenBucket(burst, perHour, clock.getAsLong());
+		this.maxAgeMillis = maxAgeMillis;
+		this.forwardUpTo = forwardUpTo;
+		this.digestFrom = digestFrom;
+	}
+
+	@Override
+	public NotificationSubscription getSubscription() {
+		return target.getSubscription().intersect(NotificationSubscription.upTo(forwardUpTo));
+	}
+
+	@Override
+	public void notify(LoggableEvent event) {
+		synchronized (this) {
+			queue.add(new QueuedEvent(event, clock.getAsLong()));
+		}
+		drain();
+	}
+
+	/**
+	 * Forwards as many queued events as the bucket currently allows.
+	 */
+	public void drain() {
+		synchronized (forwardLock) {
+			List<LoggableEvent> ready = new ArrayList<LoggableEvent>();
+			synchronized (this) {
+				long now = clock.getAsLong();
+				dropStale(now);
+				while (!queue.isEmpty() && bucket.tryTake(now)) {
+					QueuedEvent head = queue.poll();
+					if (isDigestable(head.event)) {
+						ready.add(mergeWithQueued(head));
+					} else {
+						ready.add(head.event);
+					}
+				}
+			}
+
+			for (LoggableEvent event : ready) {
+				target.notify(event);
+			}
+		}
+	}
+
+	public synchronized int getQueueLength() {
+		return queue.size();
+	}
+
+	public synchronized int getDroppedCount() {
+		return dropped;
+	}
+
+	public synchronized int getMergedCount() {
+		return merged;
+	}
+
+	private boolean isDigestable(LoggableEvent event) {
+		return event.importance.ordinal() >= digestFrom.ordinal();
+	}
+
+	private void dropStale(long now) {
+		Iterator<QueuedEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			QueuedEvent queued = iter.next();
+			if (now - queued.queuedAt > maxAgeMillis) {
+				logger.info(String.format("Dropping stale notification: %s", queued.event.message));
+				iter.remove();
+				dropped++;
+			}
+		}
+	}
+
+	private LoggableEvent mergeWithQueued(QueuedEvent head) {
+		List<LoggableEvent> digestEvents = new ArrayList<LoggableEvent>();
+		digestEvents.add(head.event);
+
+		Iterator<QueuedEvent> iter = queue.iterator();
+		while (iter.hasNext()) {
+			QueuedEvent queued = iter.next();
+			if (isDigestable(queued.event)) {
+				digestEvents.add(queued.event);
+				iter.remove();
+			}
+		}
+
+		if (digestEvents.size() == 1) {
+			return head.event;
+		}
+		merged += digestEvents.size();
+
+		digestEvents.sort(Comparator.comparingLong(x -> x.contestTimeMillis));
+		StringBuilder message = new StringBuilder();
+		for (LoggableEvent event : digestEvents) {
+			if (message.length() > 0) {
+				message.append(" | ");
+			}
+			message.append(event.message);
+		}
+
+		LoggableEvent last = digestEvents.get(digestEvents.size() - 1);
+		Map<String, String> supplements = new HashMap<String, String>();
+		supplements.put("category", "digest");
+		supplements.put("count", Integer.toString(digestEvents.size()));
+
+		return new LoggableEvent(last.contest, null, (int) last.contestTimeMillis, Instant.now(),
+				message.toString(), head.event.importance, supplements);
+	}
+
+	@Override
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread t = new Thread(runnable, "rate-limited-notifier");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				drain();
+			} catch (Exception e) {
+				logger.error(String.format("Error while forwarding queued notifications: %s", e));
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		synchronized (this) {
+			if (!queue.isEmpty()) {
+				logger.info(String.format("%d queued notifications for %s were not sent", queue.size(), target));
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Rate limited %s", target);
+	}
+}
@@ -0,0 +1,35 @@
+package io;
+
+/**
+ * Classic token bucket: holds up to capacity tokens and refills continuously at a fixed rate.
+ * Time is passed in explicitly so that callers can use any clock.
+ */
+public class TokenBucket {
+	private final double capacity;
+	private final double tokensPerMilli;
+	private double tokens;
+	private long lastRefill;
+
+	public TokenBucket(int capacity, int tokensPerHour, long now) {
+		this.capacity = capacity;
+		this.tokensPerMilli = tokensPerHour / 3600000.0;
+		this.tokens = capacity;
+		this.lastRefill = now;
+	}
+
+	private void refill(long now) {
+		if (now > lastRefill) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+			lastRefill = now;
+		}
+	}
+
+	public synchronized boolean tryTake(long now) {
+		refill(now);
+		if (tokens >= 1.0) {
+			tokens -= 1.0;
+			return true;
+		}
+		return false;
+	}
+}
@@ -3,6 +3,7 @@ package io;
 import config.TwitterConfig;
 import model.EventImportance;
 import model.LoggableEvent;
+import model.NotificationSubscription;
 import model.NotificationTarget;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -17,9 +18,7 @@ public class TwitterNotificationTarget implements NotificationTarget {
 	private final Twitter twitter;
 
 	public TwitterNotificationTarget(TwitterConfig config) {
-		twitter = config.createTwitterInstance();
-		hashTag = config.getHashtag();
-		suppressedMinutes = config.getSuppressUntilMinutes();
+		this(config.createTwitterInstance(), config.getHashtag(), config.getSuppressUntilMinutes());
 
 		try {
 			twitter.verifyCredentials();
@@ -28,27 +27,45 @@ public class TwitterNotificationTarget implements NotificationTarget {
 		}
 	}
 
+	public TwitterNotificationTarget(Twitter twitter, String hashTag, int suppressedMinutes) {
+		this.twitter = twitter;
+		this.hashTag = hashTag;
+		this.suppressedMinutes = suppressedMinutes;
+	}
+
 	@Override
-	public void notify(LoggableEvent event) {
-		if (event.contestTimeMinutes() < suppressedMinutes) {
-			return;
-		}
+	public NotificationSubscription getSubscription() {
+		return NotificationSubscription.upTo(EventImportance.Breaking).suppressUntil(suppressedMinutes);
+	}
 
+	@Override
+	public void notify(LoggableEvent event) {
 		try {
-			if (event.importance == EventImportance.Breaking) {
-				String fullMessage = event.message + " "+ hashTag;
-				if (fullMessage.length() > 140) {
-					int maxContentLength = 140 - hashTag.length() - 1 - 3;
-					
-					fullMessage = event.message.substring(0, maxContentLength-1) + "... "+ hashTag;
-				}
-				logger.info(String.format("Tweeting: %s", fullMessage));
-				twitter.updateStatus(fullMessage);
+			String fullMessage = event.message + " "+ hashTag;
+			if (fullMessage.length() > 140) {
+				int maxContentLength = 140 - hashTag.length() - 1 - 3;
+				
+				fullMessage = event.message.substring(0, maxContentLength-1) + "... "+ hashTag;
+			}
+			logger.info(String.format("Tweeting: %s", fullMessage));
+			twitter.updateStatus(fullMessage);
+		}
+		catch (TwitterException e) {
+			if (e.exceededRateLimitation()) {
+				logger.warn(String.format("Twitter rate limit exceeded, lost: %s. Consider lowering katalyzer.twitter.rateLimit.perHour",
+						event.message));
+			} else {
+				logger.warn(String.format("Failed to tweet: %s. Reason %s", event.toString(), e.getMessage()));
 			}
 		}
 		catch (Exception e) {
 			logger.warn(String.format("Failed to tweet: %s. Reason %s", event.toString(), e.getMessage()));
 		}
 	}
+
+	@Override
+	public String toString() {
+		return "Twitter notifier";
+	}
 	
 }
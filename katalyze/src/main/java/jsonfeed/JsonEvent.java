@@ -12,6 +12,7 @@ public class JsonEvent {
     private String op_str;
     private EntityOperation op;
     private JSONObject data;
+    private JSONObject source;
     private static TimeConverter converter = new TimeConverter();
 
     private static EntityOperation opFromStr(String str) {
@@ -36,6 +37,7 @@ public class JsonEvent {
         target.op = opFromStr(target.op_str);
 
         target.data =src.getJSONObject("data");
+        target.source = src;
 
         if (target.id == null && target.type != "state") {
             throw new InvalidObjectException(String.format("Events of type %s must contain an ID field", target.type));
@@ -140,6 +142,13 @@ public class JsonEvent {
         return data;
     }
 
+    /**
+     * The event as it was read from the feed, or null for events not read from a feed.
+     */
+    public JSONObject getSource() {
+        return source;
+    }
+
     public String toString() {
         return String.format("[%s:%s]", type, id);
     }
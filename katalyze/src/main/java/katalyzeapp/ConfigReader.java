@@ -5,9 +5,15 @@ import clics.ExtendedScoreDump;
 import config.TwitterConfig;
 import config.YAMLConfiguration;
 import icat.AnalystMessageSource;
+import io.CommentaryStore;
+import io.Sink;
 import io.DatabaseNotificationTarget;
+import io.FileCommentaryStore;
+import io.MySqlCommentaryStore;
+import io.RateLimitedNotificationTarget;
 import io.TwitterNotificationTarget;
 import io.WebNotificationTarget;
+import jsonfeed.JsonEvent;
 import legacyfeed.EventFeedFile;
 import messageHandlers.ContestMessages;
 import messageHandlers.PassthroughHandler;
@@ -23,6 +29,10 @@ import web.*;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.Deflater;
 import java.sql.Connection;
 
 public class ConfigReader {
@@ -31,6 +41,8 @@ public class ConfigReader {
 	Configuration config;
 	private DatabaseNotificationConfig dbConfig;
 	private boolean isDbEnabled = false;
+	private ShellCommandExecutor shellExecutor = null;
+	private List<Sink<JsonEvent>> incomingEventSinks = new ArrayList<Sink<JsonEvent>>();
 
 
 	public ConfigReader(Reader in) throws ConfigurationException {
@@ -47,6 +59,12 @@ public class ConfigReader {
 
 	private void setupDatabaseNotifier(Analyzer analyzer) {
 		isDbEnabled =config.getBoolean("katalyzer.db.enable", false);
+		String backend = config.getString("katalyzer.storage.backend", "mysql");
+
+		if ("file".equalsIgnoreCase(backend)) {
+			setupFileStore(analyzer);
+			return;
+		}
 
 		if (!isDbEnabled) {
 			return;
@@ -71,26 +89,42 @@ public class ConfigReader {
 		
 		try {
 			logger.info("Enabling database notifier");
+			setupCommentaryStore(analyzer, new MySqlCommentaryStore(dbConfig), dbConfig);
+		}
+		catch (Exception e) {
+			logger.error(String.format("Failed to add Database Notifier to analyzer. Error: %s", e));
+		}		
+	}
 
-			if (config.getBoolean("katalyzer.db.exportMessages",true)) {
-				DatabaseNotificationTarget notifier = new DatabaseNotificationTarget(dbConfig);
-				notifier.suppressUntil(config.getInt("katalyzer.notifications.suppressUntil", 0));
+	private void setupFileStore(Analyzer analyzer) {
+		// The legacy feed's team short names are only available from MySQL
+		isDbEnabled = false;
+		String fileName = config.getString("katalyzer.storage.file", "output/commentary.ndjson");
 
-				analyzer.addNotifier(notifier);
-				analyzer.addEntityChangedHandler(notifier);
+		try {
+			logger.info(String.format("Enabling file based commentary store at %s", fileName));
+			setupCommentaryStore(analyzer, new FileCommentaryStore(new File(fileName)), null);
+		}
+		catch (Exception e) {
+			logger.error(String.format("Failed to open commentary store %s. Error: %s", fileName, e));
+		}
+	}
 
-				StandingsUpdatedEvent rule = new AllSubmissions(dbConfig);
-				analyzer.addRule(rule);
-			}
-			
-			AnalystMessageSource msgSource = new AnalystMessageSource(dbConfig);
-			msgSource.open();
-			analyzer.setAnalystMsgSource(msgSource);
+	private void setupCommentaryStore(Analyzer analyzer, CommentaryStore store, DatabaseNotificationConfig entityConfig) throws Exception {
+		if (config.getBoolean("katalyzer.db.exportMessages",true)) {
+			DatabaseNotificationTarget notifier = new DatabaseNotificationTarget(store, entityConfig);
+			notifier.suppressUntil(config.getInt("katalyzer.notifications.suppressUntil", 0));
+
+			analyzer.addNotifier(notifier);
+			analyzer.addEntityChangedHandler(notifier);
 
+			StandingsUpdatedEvent rule = new AllSubmissions(store);
+			analyzer.addRule(rule);
 		}
-		catch (Exception e) {
-			logger.error(String.format("Failed to add Database Notifier to analyzer. Error: %s", e));
-		}		
+
+		AnalystMessageSource msgSource = new AnalystMessageSource(store);
+		msgSource.open();
+		analyzer.setAnalystMsgSource(msgSource);
 	}
 	
 	private void setupTwitterNotifier(Analyzer analyzer) {
@@ -108,7 +142,14 @@ public class ConfigReader {
 				);
 
 		TwitterNotificationTarget twitterNotifier = new TwitterNotificationTarget(twitterConfig);
-		analyzer.addNotifier(twitterNotifier);
+		RateLimitedNotificationTarget rateLimited = new RateLimitedNotificationTarget(twitterNotifier,
+				config.getInt("katalyzer.twitter.rateLimit.burst", 5),
+				config.getInt("katalyzer.twitter.rateLimit.perHour", 60),
+				config.getLong("katalyzer.twitter.rateLimit.maxAgeSeconds", 600) * 1000,
+				EventImportance.valueOf(config.getString("katalyzer.twitter.rateLimit.forwardUpTo", "Breaking")),
+				EventImportance.valueOf(config.getString("katalyzer.twitter.rateLimit.digestFrom", "Normal")));
+		analyzer.addNotifier(rateLimited);
+		analyzer.manageLifeCycle(rateLimited);
 	}
 	
 	private boolean ruleEnabled(String ruleName) {
@@ -120,6 +161,18 @@ public class ConfigReader {
 	}
 	
 	
+	private ShellCommandExecutor getShellExecutor(Analyzer analyzer) {
+		if (shellExecutor == null) {
+			shellExecutor = new ShellCommandExecutor(
+					config.getInt("katalyzer.exec.maxConcurrent", 4),
+					config.getInt("katalyzer.exec.maxQueued", 100),
+					config.getLong("katalyzer.exec.coalesceMillis", 5000),
+					config.getLong("katalyzer.exec.timeoutMillis", 60000));
+			analyzer.manageLifeCycle(shellExecutor);
+		}
+		return shellExecutor;
+	}
+
 	private void addRuleIfEnabled(Analyzer analyzer, String ruleName, StateComparingRuleBase newRule) {
 		if (!ruleEnabled(ruleName)) {
 			return;
@@ -129,7 +182,7 @@ public class ConfigReader {
 		String execTemplate = config.getString("katalyzer.rule."+ruleName+".exec", "");
 		if (!"".equals(execTemplate)) {
 			logger.info(String.format("Adding trigger on rule %s: %s", newRule, execTemplate));
-			ShellNotificationTarget executer = new ShellNotificationTarget(execTemplate);
+			ShellNotificationTarget executer = new ShellNotificationTarget(execTemplate, getShellExecutor(analyzer));
 			executer.suppressUntil(config.getInt("katalyzer.notifications.suppressUntil", 0));
 			newRule.addNotificationTarget(executer);
 		}
@@ -168,7 +221,8 @@ public class ConfigReader {
 			}
 			
 			try {
-				EventFeedFile outStream = new EventFeedFile(f);
+				EventFeedFile outStream = new EventFeedFile(f,
+						config.getInt("katalyzer.eventStream.memoryBuffer", EventFeedFile.DefaultBufferSize));
 				
 				PassthroughHandler outgoingEventFeed = new PassthroughHandler(outStream);
 				messageHandlers.add(outgoingEventFeed);
@@ -182,25 +236,57 @@ public class ConfigReader {
 		return null;
 	}
 	
+	private CompressionSettings getCompressionSettings() {
+		String prefix = "katalyzer.web.compressionLevel";
+		CompressionSettings settings = new CompressionSettings(config.getInt(prefix + ".default", Deflater.DEFAULT_COMPRESSION));
+		Iterator<?> keys = config.getKeys(prefix);
+		while (keys.hasNext()) {
+			String key = (String) keys.next();
+			String contentType = key.substring(prefix.length()).replaceFirst("^\\.", "");
+			if (!contentType.isEmpty() && !contentType.equals("default")) {
+				settings.setLevel(contentType, config.getInt(key));
+			}
+		}
+		return settings;
+	}
+
 	public void setupWebPublisher(Contest contest, Analyzer analyzer, EventFeedFile augmentedEventFeed) {
 		KatalyzerHttpHandler httpHandler;
 		if (featureEnabled("web")) {
 			int port = config.getInteger("katalyzer.web.port", 8099);
 			boolean useCompression = config.getBoolean("katalyzer.web.compress", true);
 			
-			WebPublisher webPublisher = new WebPublisher(useCompression);
+			WebPublisher webPublisher = new WebPublisher(useCompression ? getCompressionSettings() : null);
 			
-			httpHandler = new KatalyzerHttpHandler(contest, webPublisher, port);
+			ServingCore servingCore = new ServingCore(
+					config.getInt("katalyzer.web.workerThreads", ServingCore.DefaultWorkerThreads),
+					config.getInt("katalyzer.web.requestQueue", ServingCore.DefaultQueueCapacity),
+					config.getInt("katalyzer.web.maxStreams", ServingCore.DefaultMaxStreams),
+					config.getBoolean("katalyzer.web.virtualThreads", true));
+			httpHandler = new KatalyzerHttpHandler(contest, webPublisher, port, servingCore);
+			httpHandler.addHandler(new MetricsHandler(servingCore, "/metrics"));
 		    
 			httpHandler.addHandler(new EventFeedStreamer(augmentedEventFeed, "/eventfeed"));
 
 
 			WebNotificationTarget commentaryMessages = new WebNotificationTarget(webPublisher);
 			PublishableEventList events = commentaryMessages.getAllEvents();
-			httpHandler.addHandler(new JsonEventStreamer(events, new LoggableEventSerializer(), "/commentary-messages"));
+			httpHandler.addHandler(new JsonEventStreamer(events, "/commentary-messages"));
+
+			AugmentedEventFeed augmentedJsonFeed = new AugmentedEventFeed(new SegmentedEventFeed(
+					config.getInt("katalyzer.web.eventFeed.segmentEvents", SegmentedEventFeed.DefaultSegmentEvents),
+					config.getLong("katalyzer.web.eventFeed.memory", SegmentedEventFeed.DefaultMaxBytes)));
+			httpHandler.addHandler(new AugmentedEventFeedStreamer(augmentedJsonFeed.getFeed(), "/event-feed"));
+			incomingEventSinks.add(augmentedJsonFeed);
+			analyzer.addNotifier(augmentedJsonFeed);
+			analyzer.manageLifeCycle(augmentedJsonFeed);
 
 
-			analyzer.addOutputHook(new ExtendedScoreDump(contest, webPublisher));
+			ScoreboardHistory scoreboardHistory = new ScoreboardHistory(config.getInt("katalyzer.web.scoreboardHistory", 100));
+			httpHandler.addHandler(new ScoreboardDeltaHandler(scoreboardHistory, "/scoreboard"));
+			httpHandler.addHandler(new ScoreboardEventStreamer(scoreboardHistory, "/scoreboard-events"));
+
+			analyzer.addOutputHook(new ExtendedScoreDump(contest, webPublisher, scoreboardHistory));
 			analyzer.addNotifier(commentaryMessages);
 			analyzer.manageLifeCycle(httpHandler);
 		
@@ -214,6 +300,7 @@ public class ConfigReader {
 			try {
 				FileWebPublisher publisher = new FileWebPublisher(targetDirectory);
 				analyzer.addNotifier(new WebNotificationTarget(publisher));
+				analyzer.manageLifeCycle(publisher);
 			} catch (IOException e) {
 				logger.error(String.format("Failed to initialize file publisher. Reason: %s", e));
 			}
@@ -234,6 +321,13 @@ public class ConfigReader {
 		setupFilePublisher(contest, analyzer);
 	}
 
+	/**
+	 * Consumers of the incoming JSON events, to be called before each event is processed.
+	 */
+	public List<Sink<JsonEvent>> getIncomingEventSinks() {
+		return incomingEventSinks;
+	}
+
 	public Connection getConnection() throws Exception {
 		if (isDbEnabled) {
 			return dbConfig.createConnection();
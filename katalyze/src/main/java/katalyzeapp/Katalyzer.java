@@ -1,5 +1,6 @@
 package katalyzeapp;
 
+import io.Sink;
 import legacyfeed.SimpleMessage;
 import legacyfeed.TokenFeeder;
 import legacyfeed.TokenQueue;
@@ -14,6 +15,7 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.log4j.Logger;
 
 import java.io.InputStream;
+import java.util.List;
 
 public class Katalyzer {
 	private static Logger logger = Logger.getLogger(Katalyzer.class);
@@ -25,6 +27,7 @@ public class Katalyzer {
 	
 	Contest contest;
 	ContestMessages handlers;
+	List<Sink<JsonEvent>> incomingEventSinks;
 	
 	public Katalyzer(Configuration config) throws Exception {
 		ConfigReader configReader = new ConfigReader(config);
@@ -38,6 +41,7 @@ public class Katalyzer {
 
 		analyzer.addNotifier(new LogNotificationTarget(false));
 		handlers.addStandardHandlers(configReader.getConnection());
+		incomingEventSinks = configReader.getIncomingEventSinks();
 	}
 	
 	
@@ -68,6 +72,8 @@ public class Katalyzer {
 					contest.updateTime((long) Math.floor(contestTime*1000));
 				}
 				handlers.process(message);
+				contest.publishReadModel();
+				contest.getAnalyzer().pushStandingsChanges();
 			}
 			updateScoreboards(false);
 		}
@@ -78,12 +84,17 @@ public class Katalyzer {
 
 	public void processEvent(JsonEvent event)  {
 	    if (event != null) {
+            for (Sink<JsonEvent> sink : incomingEventSinks) {
+                sink.send(event);
+            }
             JsonEventHandler eventHandler = eventHandlers.getHandlerFor(event);
             try {
                 eventHandler.process(contest, event);
             } catch (Exception e) {
                 logger.error(String.format("Error %s while processing event %s", e, event), e);
             }
+            contest.publishReadModel();
+            contest.getAnalyzer().pushStandingsChanges();
             updateScoreboards(false);
         } else {
 	        updateScoreboards(true);
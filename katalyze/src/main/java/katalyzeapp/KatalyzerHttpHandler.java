@@ -8,7 +8,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.log4j.Logger;
 
@@ -28,12 +28,20 @@ class KatalyzerHttpHandler implements HttpHandler, LifeCycleAware {
 	WebPublisher publisher;
 	List<WebHandler> handlers = new ArrayList<WebHandler>();
 	int port;
+	WatchedFiles staticFiles;
+	ServingCore core;
 	
 
 	public KatalyzerHttpHandler(Contest contest, WebPublisher publisher, int port) {
+		this(contest, publisher, port, new ServingCore());
+	}
+
+	public KatalyzerHttpHandler(Contest contest, WebPublisher publisher, int port, ServingCore core) {
 		this.contest = contest;
 		this.publisher = publisher;
 		this.port = port;
+		this.staticFiles = new WatchedFiles(publisher);
+		this.core = core;
 	}
 	
 	public void addHandler(WebHandler handler) {
@@ -46,42 +54,75 @@ class KatalyzerHttpHandler implements HttpHandler, LifeCycleAware {
 	    server = HttpServer.create(addr, 0);
 
 	    server.createContext("/", this);
-	    server.setExecutor(Executors.newCachedThreadPool());
+	    server.setExecutor(core.getRequestExecutor());
 	    server.start();
 	    logger.info(String.format("HTTP listener started on port %d", port));
 	    
-	    publisher.publish("/scoreboard.html", new DynamicFileWebDocument("text/html","scoreboard.html"));
+	    staticFiles.publish("/scoreboard.html", "text/html", "scoreboard.html");
+	    // Replaced by the JSON scoreboard once standings are published, so not watched
 	    publisher.publish("/scoreboard", new DynamicFileWebDocument("text/html","scoreboard.html"));
 	    
-	    publisher.publish("/web/scores.js", new DynamicFileWebDocument("text/javascript","web/scores.js"));
-	    publisher.publish("/web/mpegts.js", new DynamicFileWebDocument("text/javascript","web/mpegts.js"));
-	    publisher.publish("/web/showvideo.html", new DynamicFileWebDocument("text/html","web/showvideo.html"));
-	    publisher.publish("/web/showvideo.js", new DynamicFileWebDocument("text/javascript","web/showvideo.js"));
+	    staticFiles.publish("/web/scores.js", "text/javascript", "web/scores.js");
+	    staticFiles.publish("/web/scoreboard-binary.js", "text/javascript", "web/scoreboard-binary.js");
+	    staticFiles.publish("/web/mpegts.js", "text/javascript", "web/mpegts.js");
+	    staticFiles.publish("/web/showvideo.html", "text/html", "web/showvideo.html");
+	    staticFiles.publish("/web/showvideo.js", "text/javascript", "web/showvideo.js");
 	    publisher.publish("/web/jquery-1.6.1.js", StaticWebDocument.FromResource("text/javascript", this, "web/jquery-1.6.1.js"));
 	    publisher.publish("/web/jquery-ui-1.8.13.custom.js", StaticWebDocument.FromResource("text/javascript", this, "web/jquery-ui-1.8.13.custom.js"));
-	    publisher.publish("/css/katalyze.css", new DynamicFileWebDocument("text/css","css/katalyze.css"));
+	    staticFiles.publish("/css/katalyze.css", "text/css", "css/katalyze.css");
+	    staticFiles.start();
 	    
 	}
 	
 	
 	
 	
-	public void stop() {
+	public void stop() throws IOException {
+		staticFiles.stop();
 		server.stop(0);
+		core.shutdown();
 	    logger.info("HTTP listener stopped");
 	}
 	
 	
-	private void sendWebDocument(HttpExchange exchange, WebDocument doc) throws IOException {
+	private void sendWebDocument(HttpExchange exchange, PublishedDocument published) throws IOException {
 		
+			Headers requestHeaders = exchange.getRequestHeaders();
+			WebDocument doc = published.negotiate(requestHeaders.getFirst("Accept-Encoding"));
 			Headers responseHeaders = exchange.getResponseHeaders();
 
 			responseHeaders.set("Content-Type", doc.getContentType());
 			responseHeaders.set("Access-Control-Allow-Origin", "*");
-			if (doc.isGzipCompressed()) {
-				responseHeaders.set("Content-Encoding", "gzip");
+			if (published.hasVariants()) {
+				responseHeaders.set("Vary", "Accept-Encoding");
+			}
+			String etag = published.getEtag(doc);
+			if (etag != null) {
+				responseHeaders.set("ETag", etag);
+				responseHeaders.set("Last-Modified", published.getLastModified());
+				responseHeaders.set("Cache-Control", "no-cache");
+
+				if (published.matches(requestHeaders.getFirst("If-None-Match"), doc)) {
+					exchange.sendResponseHeaders(304, -1);
+					exchange.close();
+					return;
+				}
+			}
+			if (doc.getContentEncoding() != null) {
+				responseHeaders.set("Content-Encoding", doc.getContentEncoding());
+			}
+
+			// A known length is sent as Content-Length, otherwise the response is chunked
+			long contentLength = doc.getContentLength();
+			long responseLength;
+			if (contentLength < 0) {
+				responseLength = 0;
+			} else if (contentLength == 0) {
+				responseLength = -1;
+			} else {
+				responseLength = contentLength;
 			}
-			exchange.sendResponseHeaders(200, 0);
+			exchange.sendResponseHeaders(200, responseLength);
 			
 			OutputStream responseBody = exchange.getResponseBody();
 			
@@ -91,24 +132,66 @@ class KatalyzerHttpHandler implements HttpHandler, LifeCycleAware {
 	}
 	
 	
-	public void handle(HttpExchange exchange) throws IOException {
+	private void sendUnavailable(HttpExchange exchange) throws IOException {
+		byte[] message = "Server busy, try again later\n".getBytes(StandardCharsets.UTF_8);
+		Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Content-Type", "text/plain");
+		responseHeaders.set("Access-Control-Allow-Origin", "*");
+		responseHeaders.set("Retry-After", "1");
+		exchange.sendResponseHeaders(503, message.length);
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(message);
+		responseBody.close();
+	}
+	
+	public void handle(final HttpExchange exchange) throws IOException {
+		WebHandler handler = null;
 		for (WebHandler h : handlers) {
 			if (h.matches(exchange)) {
-				h.handle(exchange);
-				return;
+				handler = h;
+				break;
 			}
 		}
+		String endpoint = (handler != null) ? handler.getName() : "documents";
 		
+		if (core.isShedding()) {
+			core.reject(endpoint);
+			logger.debug(String.format("503: %s (request queue full)", exchange.getRequestURI()));
+			sendUnavailable(exchange);
+			return;
+		}
 		
+		if (handler == null) {
+			core.serve(endpoint, exchange, () -> sendPublished(exchange));
+		} else if (handler.isStreaming()) {
+			final WebHandler streamer = handler;
+			boolean admitted = core.stream(endpoint, exchange, () -> {
+				try {
+					streamer.handle(exchange);
+				} finally {
+					exchange.close();
+				}
+			});
+			if (!admitted) {
+				logger.warn(String.format("503: %s (stream limit reached)", exchange.getRequestURI()));
+				sendUnavailable(exchange);
+			}
+		} else {
+			final WebHandler h = handler;
+			core.serve(endpoint, exchange, () -> h.handle(exchange));
+		}
+	}
+	
+	private void sendPublished(HttpExchange exchange) throws IOException {
 		String requestMethod = exchange.getRequestMethod();
 		if (requestMethod.equalsIgnoreCase("GET")) {
 			
 			URI uri = exchange.getRequestURI();
 			String path = uri.getPath();
 			logger.debug(String.format("%s %s (%s)", requestMethod, path, exchange.getRemoteAddress().toString()));
-			WebDocument document = this.publisher.get(path);
+			PublishedDocument document = this.publisher.getPublished(path);
 			if (document != null) {
-				sendWebDocument(exchange, document);;
+				sendWebDocument(exchange, document);
 			} else {
 				logger.warn("404: "+uri);
 				Headers responseHeaders = exchange.getResponseHeaders();
@@ -6,21 +6,73 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
+/**
+ * The augmented event feed. Everything written is stored in the target file, and the most recent
+ * part is also kept in an in-memory ring buffer that is shared by all readers. Readers that have
+ * fallen behind the ring are served from the file.
+ */
 public class EventFeedFile {
+	public static final int DefaultBufferSize = 8 * 1024 * 1024;
+	private static final int MaxChunkSize = 64 * 1024;
 	
 	final File targetFile;
 	final FileOutputStream fileOutput;
 	final PrintStream outputStream;
-	Boolean closed = false;
-	int length = 0;
-	
+	final byte[] ring;
+	volatile Boolean closed = false;
+	volatile long length = 0;
+
 	public EventFeedFile(File targetFile) throws FileNotFoundException, UnsupportedEncodingException {
+		this(targetFile, DefaultBufferSize);
+	}
+	
+	public EventFeedFile(File targetFile, int bufferSize) throws FileNotFoundException, UnsupportedEncodingException {
 		this.targetFile = targetFile;
+		this.ring = new byte[bufferSize];
 		fileOutput = new FileOutputStream(targetFile);
-		outputStream = new PrintStream(fileOutput,true, "UTF-8");
+		outputStream = new PrintStream(new TeeOutputStream(),true, "UTF-8");
+	}
+
+	private class TeeOutputStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// The file is written first, so anything that has left the ring is always on disk
+			fileOutput.write(b, off, len);
+			append(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			fileOutput.flush();
+		}
+	}
+
+	private synchronized void append(byte[] b, int off, int len) {
+		int capacity = ring.length;
+		if (len > capacity) {
+			off += len - capacity;
+			length += len - capacity;
+			len = capacity;
+		}
+
+		int start = (int) (length % capacity);
+		int firstPart = Math.min(len, capacity - start);
+		System.arraycopy(b, off, ring, start, firstPart);
+		System.arraycopy(b, off + firstPart, ring, 0, len - firstPart);
+		length += len;
+		notifyAll();
 	}
 	
 	public InputStream getEventStream() throws FileNotFoundException {
@@ -38,13 +90,78 @@ public class EventFeedFile {
 	public void close() throws IOException {
 		outputStream.close();
 		fileOutput.close();
-		closed = true;
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
 	}
 	
 	public int getLength() {
-		return (int) targetFile.length();
+		return (int) length;
 	}
 
-}
+	/**
+	 * Blocks until there is data beyond the given position, the feed is closed, or the timeout expires.
+	 * Returns true if there is data to read.
+	 */
+	public synchronized boolean awaitData(long position, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (length <= position && !closed) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			wait(remaining);
+		}
+		return length > position;
+	}
+
+	/**
+	 * Writes everything available from the given position to the target, and returns the new position.
+	 * Data still in the ring is copied from memory; older data is transferred from the file.
+	 */
+	public long transferTo(long position, OutputStream target, FileChannel spillover) throws IOException {
+		long oldestInRing;
+		synchronized (this) {
+			oldestInRing = Math.max(0, length - ring.length);
+		}
 
+		if (position < oldestInRing) {
+			WritableByteChannel channel = Channels.newChannel(target);
+			while (position < oldestInRing) {
+				long transferred = spillover.transferTo(position, oldestInRing - position, channel);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+		}
 
+		byte[] chunk;
+		while ((chunk = copyFromRing(position)) != null) {
+			target.write(chunk);
+			position += chunk.length;
+		}
+		return position;
+	}
+
+	public FileChannel openSpillover() throws FileNotFoundException {
+		return new FileInputStream(targetFile).getChannel();
+	}
+
+	private synchronized byte[] copyFromRing(long position) {
+		int capacity = ring.length;
+		if (position >= length || position < length - capacity) {
+			return null;
+		}
+
+		int count = (int) Math.min(length - position, MaxChunkSize);
+		byte[] chunk = new byte[count];
+		int start = (int) (position % capacity);
+		int firstPart = Math.min(count, capacity - start);
+		System.arraycopy(ring, start, chunk, 0, firstPart);
+		System.arraycopy(ring, 0, chunk, firstPart, count - firstPart);
+		return chunk;
+	}
+
+}
@@ -89,14 +89,7 @@ public class PassthroughHandler implements MessageHandler, NotificationTarget {
             eventMessage.put("judgement", "-1");
         }
 
-        String category = "auto";
-        if (event.supplements != null) {
-            String categorySupplement = event.supplements.get("category");
-            if (categorySupplement != null) {
-                category = categorySupplement;
-            }
-        }
-        eventMessage.put("category", category);
+        eventMessage.put("category", event.getCategory());
 		eventMessage.put("message", event.message);
 		return eventMessage;		
 	}
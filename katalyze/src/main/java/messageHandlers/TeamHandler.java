@@ -7,18 +7,25 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class TeamHandler extends SingleMessageHandler {
 	static Logger logger = Logger.getLogger(TeamHandler.class);
 
 	private final Connection connection;
+	private Map<String, String> shortNames = new HashMap<String, String>();
+	private final Set<String> refreshedFor = new HashSet<String>();
 
 	public TeamHandler(Connection connection) {
 		super("team");
 		this.connection = connection;
+		refreshShortNames();
 	}
 	
 	public void process(SimpleMessage message) {
@@ -33,31 +40,57 @@ public class TeamHandler extends SingleMessageHandler {
 		contest.addTeam(newTeam);
 	}
 
-	private String getTeamShortName(String teamId) {
+	/**
+	 * Reloads all team short names from the database in a single query, so that
+	 * processing team messages does not require a database round trip per team.
+	 * Called again when a team message names a team that was not loaded yet.
+	 */
+	public void refreshShortNames() {
 		if (connection == null) {
-			return "";
+			return;
 		}
 
+		Map<String, String> loaded = new HashMap<String, String>();
 		try {
-			int teamNumber = Integer.parseInt(teamId);
+			Statement s = connection.createStatement();
+			try {
+				ResultSet results = s.executeQuery("select team_id, school_short from teams");
+				while (results.next()) {
+					loaded.put(Integer.toString(results.getInt("team_id")), results.getString("school_short"));
+				}
+			} finally {
+				s.close();
+			}
+			shortNames = loaded;
+			logger.info(String.format("Loaded short names for %d teams", loaded.size()));
+		} catch (SQLException e) {
+			logger.error(String.format("Unable to retrieve team information: %s", e.getMessage()));
+		}
+	}
 
-			PreparedStatement s = connection.prepareStatement("select school_short from teams where team_id = ?");
-			s.setInt(1, teamNumber);
-			ResultSet results = s.executeQuery();
+	private String getTeamShortName(String teamId) {
+		if (connection == null) {
+			return "";
+		}
 
-			if (results.next()) {
-				return results.getString("school_short");
-			} else {
-				logger.warn(String.format("Team with id %s not in database", teamId));
-				return "";
-			}
+		String key;
+		try {
+			key = Integer.toString(Integer.parseInt(teamId));
 		} catch (NumberFormatException e) {
 			return "";
 		}
-		catch (SQLException e) {
-			logger.error(String.format("Unable to retrieve team id %d information", e.getMessage()));
+
+		String shortName = shortNames.get(key);
+		if (shortName == null && refreshedFor.add(key)) {
+			// The team may have been added to the database after the last load
+			refreshShortNames();
+			shortName = shortNames.get(key);
+		}
+		if (shortName == null) {
+			logger.warn(String.format("Team with id %s not in database", teamId));
 			return "";
 		}
+		return shortName;
 	}
 	
 }
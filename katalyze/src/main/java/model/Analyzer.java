@@ -20,9 +20,10 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 	List<EntityChangedHandler> entityChangedHandlers = new ArrayList<>();
 	AnalystMessageSource analystMsgSource = null;
 	
-	List<NotificationTarget> targets = new ArrayList<NotificationTarget>();
+	NotificationRouter targets = new NotificationRouter();
 	List<OutputHook> outputHooks = new ArrayList<OutputHook>();
 	List<LifeCycleAware> lifeCycleAwareObjects = new ArrayList<LifeCycleAware>();
+	final DocumentGraph documents = new DocumentGraph();
 	
 	JudgingOutcomes judgingOutcomes = new JudgingOutcomes();
 	HashtagFinder hashtagFinder = new HashtagFinder();
@@ -30,6 +31,7 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 
 	
 	int lastHookTime = -1;
+	boolean standingsChangePending = false;
 	int videoCaptureTreshold;
 	int nextEventId = 0;
 	
@@ -156,9 +158,7 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 	}
 	
 	public void notify(LoggableEvent event) {
-		for (NotificationTarget target : targets) {
-			target.notify(event);
-		}
+		targets.dispatch(event);
 	}
 	
 	
@@ -183,6 +183,7 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 	}
 
 	public void contestStateChanged(ContestState oldState, ContestState newState) {
+	    documents.markDirty(ModelFacet.ContestState);
 	    if (oldState.notStartedYet() && newState.isRunning()) {
 	        notify(createEvent(null, 0, "Contest has started", EventImportance.Breaking));
         }
@@ -203,6 +204,7 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 	public void freshSubmission(InitialSubmission submission) {
 
 		judgingOutcomes.newSubmission(submission);
+		documents.markDirty(ModelFacet.Standings);
 
 		if (submission.getTeam().isHidden()) {
 			return;
@@ -231,6 +233,7 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 	}
 	
 	public void publishStandings() {
+		contest.publishReadModel();
 		for (OutputHook hook : outputHooks) {
 			if (hook instanceof StandingsPublisher) {
 				((StandingsPublisher) hook).publishStandings();
@@ -238,7 +241,34 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 		}
 	}
 
+	/**
+	 * Called while an event is being applied. Standings publishers are told in
+	 * pushStandingsChanges(), once the read model includes the whole event.
+	 */
+	public void standingsChanged() {
+		standingsChangePending = true;
+	}
+
+	/**
+	 * Called by the ingestion thread after publishing the read model.
+	 */
+	public void pushStandingsChanges() {
+		if (!standingsChangePending) {
+			return;
+		}
+		standingsChangePending = false;
+		for (OutputHook hook : outputHooks) {
+			if (hook instanceof StandingsPublisher) {
+				((StandingsPublisher) hook).standingsChanged();
+			}
+		}
+	}
+
 	public void notifyHooks(int minutesFromStart) {
+		// Hooks publish from the read model, so it has to include everything applied so far
+		if (lastHookTime < minutesFromStart) {
+			contest.publishReadModel();
+		}
 		while (lastHookTime < minutesFromStart) {
 			lastHookTime++;
 			
@@ -249,6 +279,10 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 
 	}
 
+	public DocumentGraph getDocumentGraph() {
+		return documents;
+	}
+
 	public void addOutputHook(OutputHook outputHook) {
 		outputHooks.add(outputHook);
 	}
@@ -260,6 +294,10 @@ public class Analyzer implements NotificationTarget, EntityChangedHandler {
 
 	@Override
 	public void entityChanged(ApiEntity entity, EntityOperation op) {
+		ModelFacet facet = DocumentGraph.facetOf(entity);
+		if (facet != null) {
+			documents.markDirty(facet);
+		}
 		for (EntityChangedHandler handler : entityChangedHandlers) {
 			try {
 				handler.entityChanged(entity, op);
@@ -25,6 +25,9 @@ public class Contest {
 	private ContestProperties properties;
 	private long contestTimeMillis = 0;
 
+	final DocumentGraph.Node readModelDocument;
+	private volatile ReadModel readModel;
+
 	public Contest() {
 		this.problems = new TreeMap<>();
 		this.problemsByLabel = new TreeSet<Problem>(Comparator.comparing(x -> x.label));
@@ -39,6 +42,29 @@ public class Contest {
 		this.properties = new ContestProperties("Uninitialized Contest", 20, 3600000);
 		
 		analyzer.addRule(stats.submissionsPerLanguage);
+
+		this.readModelDocument = analyzer.getDocumentGraph().register("read-model", ModelFacet.values());
+		publishReadModel();
+	}
+
+	/**
+	 * Snapshot of the contest as of the last publishReadModel(). Safe to use from any thread.
+	 */
+	public ReadModel getReadModel() {
+		return readModel;
+	}
+
+	/**
+	 * Called by the ingestion thread after applying events. Snapshots the model if any of it
+	 * changed since the last publication, and otherwise only moves the contest time along.
+	 * Changes are only seen here if the mutation marked its ModelFacet.
+	 */
+	public void publishReadModel() {
+		boolean rebuilt = readModelDocument.refresh(() ->
+			readModel = ReadModel.build(this, readModel, contestTimeMillis, properties));
+		if (!rebuilt && readModel.getContestTimeMillis() != contestTimeMillis) {
+			readModel = readModel.at(contestTimeMillis);
+		}
 	}
 
 	public void init(String name, int penaltyTime, long freezeMillis) {
@@ -73,6 +99,7 @@ public class Contest {
 	public Group registerGroup(String groupId, String groupName, boolean hidden) {
 		Group newGroup = new Group(groupId, groupName, hidden);
 		groups.put(groupId, newGroup);
+		analyzer.getDocumentGraph().markDirty(ModelFacet.Teams);
 		return newGroup;
 	}
 
@@ -140,11 +167,13 @@ public class Contest {
 
 		boolean judegementMadeNoDifference = team.registerJudgement(newJudgement);
 		submissions.add(newJudgement);
+		analyzer.getDocumentGraph().markDirty(ModelFacet.Standings);
 
 		if (!judegementMadeNoDifference) {
 		    // Don't process rules again if judgement didn't affect the state of the contest
             Standings after = getStandings();
             analyzer.processRules(before, after, newJudgement);
+            analyzer.standingsChanged();
         }
 		analyzer.notifyHooks((int)(newJudgement.getJudgementTimeMillis()/60000));
 	}
@@ -176,14 +205,20 @@ public class Contest {
 
 	public void addOrganization(Organization newOrganization) {
 		this.organizations.add(newOrganization);
+		analyzer.getDocumentGraph().markDirty(ModelFacet.Teams);
 	}
 
 	public Organization getOrganization(String id) {
 		return organizations.get(id);
 	}
 
+	/**
+	 * Adds a team from the legacy feed. Entity changed handlers are not notified, as they
+	 * expect teams with an organization; only the documents that list teams are invalidated.
+	 */
 	public void addTeam(Team newTeam) {
 		teams.add(newTeam);
+		analyzer.getDocumentGraph().markDirty(ModelFacet.Teams);
 	}
 	
 	public Team getTeam(String teamNumber) throws InvalidKeyException {
@@ -0,0 +1,112 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks which published documents are out of date. Model changes mark a facet dirty by
+ * bumping its version; each document declares the facets it is built from and is only
+ * regenerated when one of them moved since it was last built.
+ */
+public class DocumentGraph {
+	final AtomicLongArray versions = new AtomicLongArray(ModelFacet.values().length);
+	final List<Node> nodes = new CopyOnWriteArrayList<Node>();
+
+	public class Node {
+		final String name;
+		final ModelFacet[] dependencies;
+		long[] builtAt = null;
+		int regenerations = 0;
+		int skips = 0;
+
+		Node(String name, ModelFacet[] dependencies) {
+			this.name = name;
+			this.dependencies = dependencies;
+		}
+
+		private long[] currentVersions() {
+			long[] target = new long[dependencies.length];
+			for (int i = 0; i < dependencies.length; i++) {
+				target[i] = versions.get(dependencies[i].ordinal());
+			}
+			return target;
+		}
+
+		public synchronized boolean isDirty() {
+			return !Arrays.equals(builtAt, currentVersions());
+		}
+
+		/**
+		 * Forces the next refresh to regenerate, for inputs that aren't model facets.
+		 */
+		public synchronized void invalidate() {
+			builtAt = null;
+		}
+
+		/**
+		 * Runs regenerate if a dependency changed since the last successful refresh.
+		 * Changes made while regenerating leave the document dirty for the next refresh.
+		 */
+		public synchronized boolean refresh(Runnable regenerate) {
+			long[] seen = currentVersions();
+			if (Arrays.equals(builtAt, seen)) {
+				skips++;
+				return false;
+			}
+			regenerate.run();
+			builtAt = seen;
+			regenerations++;
+			return true;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized int getRegenerations() {
+			return regenerations;
+		}
+
+		public synchronized int getSkips() {
+			return skips;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %s", name, Arrays.toString(dependencies));
+		}
+	}
+
+	public Node register(String name, ModelFacet... dependencies) {
+		Node node = new Node(name, dependencies);
+		nodes.add(node);
+		return node;
+	}
+
+	public void markDirty(ModelFacet facet) {
+		versions.incrementAndGet(facet.ordinal());
+	}
+
+	/**
+	 * The facet an entity belongs to, or null for entities no document depends on.
+	 */
+	public static ModelFacet facetOf(ApiEntity entity) {
+		if (entity instanceof Team || entity instanceof Organization || entity instanceof Group || entity instanceof TeamMember) {
+			return ModelFacet.Teams;
+		}
+		if (entity instanceof Problem) {
+			return ModelFacet.Problems;
+		}
+		if (entity instanceof ContestProperties) {
+			return ModelFacet.ContestState;
+		}
+		return null;
+	}
+
+	public List<Node> getNodes() {
+		return new ArrayList<Node>(nodes);
+	}
+}
@@ -1,11 +1,13 @@
 package model;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.time.Instant;
 
 public class LoggableEvent {
-	private static int nextEventId = 0;
+	// Events are also created off the analyzer thread, e.g. rate limiter digests
+	private static final AtomicInteger nextEventId = new AtomicInteger();
 	
 	
 	public final Contest contest;
@@ -21,7 +23,7 @@ public class LoggableEvent {
 	public final Map<String, String> supplements;
 	
 	public LoggableEvent(Contest contest, long contestTimeMillis, Instant eventTime, String message, EventImportance importance, InitialSubmission submission, Map<String,String> supplements) {
-		this.id = nextEventId++;
+		this.id = nextEventId.getAndIncrement();
 		this.contest = contest;
 		this.team = (submission != null) ? submission.getTeam() : null;
 		this.contestTimeMillis = contestTimeMillis;
@@ -41,7 +43,7 @@ public class LoggableEvent {
 	}
 	
 	public LoggableEvent(Contest contest, Team team, int contestTimeMillis, Instant eventTime, String message, EventImportance importance, Map<String,String> supplements) {
-		this.id = nextEventId++;
+		this.id = nextEventId.getAndIncrement();
 		this.contest = contest;
 		this.team = team;
 		this.contestTimeMillis = contestTimeMillis;
@@ -54,6 +56,16 @@ public class LoggableEvent {
 		this.problem = null;
 	}
 
+	public String getCategory() {
+		if (supplements != null) {
+			String category = supplements.get("category");
+			if (category != null) {
+				return category;
+			}
+		}
+		return "auto";
+	}
+
 	public int contestTimeMinutes() {
 		return (int) (contestTimeMillis / 60000);
 	}
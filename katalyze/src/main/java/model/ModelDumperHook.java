@@ -18,9 +18,9 @@ public class ModelDumperHook implements OutputHook {
 	
 	static Logger logger = Logger.getLogger(ModelDumperHook.class);
 
-	JSONArray getProblems() {
+	JSONArray getProblems(ReadModel model) {
 		JSONArray target = new JSONArray();
-		for (Problem p : contest.getProblems()) {
+		for (Problem p : model.getProblems()) {
 			JSONObject obj = new JSONObject();
 			obj.put("problem", p.getId());
 			obj.put("name", p.getNameAndLabel());
@@ -46,11 +46,11 @@ public class ModelDumperHook implements OutputHook {
 	}
 
 	JSONObject getJson(int minutesFromStart) {
+		ReadModel model = contest.getReadModel();
 		JSONObject obj = new JSONObject();
-		// TODO Auto-generated method stub
-		obj.put("problems", getProblems());
+		obj.put("problems", getProblems(model));
 		obj.put("graphs", getGraphs());
-		obj.put("contestLength", contest.getLengthInMinutes());
+		obj.put("contestLength", model.getLengthInMinutes());
 		obj.put("contestTime", minutesFromStart);
 		return obj;
 	}
@@ -62,6 +62,7 @@ public class ModelDumperHook implements OutputHook {
 	
 	@Override
 	public void execute(int minutesFromStart) {
+		// Rewritten on every call, since the graph slider follows the current minute
 		JSONObject json = getJson(minutesFromStart);
 		FileWriter writer = null;
 		try {
@@ -0,0 +1,11 @@
+package model;
+
+/**
+ * The parts of the contest model that published documents are built from.
+ */
+public enum ModelFacet {
+	Teams,
+	Problems,
+	Standings,
+	ContestState
+}
@@ -0,0 +1,122 @@
+package model;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dispatches events to notification targets. The subscriber lists for every importance and
+ * category are computed when a target is added, so dispatching an event only touches the
+ * targets that want it.
+ */
+public class NotificationRouter {
+	static Logger logger = Logger.getLogger(NotificationRouter.class);
+
+	private static class Route {
+		final NotificationTarget target;
+		final NotificationSubscription subscription;
+
+		Route(NotificationTarget target, NotificationSubscription subscription) {
+			this.target = target;
+			this.subscription = subscription;
+		}
+	}
+
+	private final List<Route> routes = new ArrayList<Route>();
+
+	// Per importance: subscribers by known category, and subscribers to any other category
+	private volatile Map<EventImportance, Map<String, List<Route>>> byCategory = new EnumMap<>(EventImportance.class);
+	private volatile Map<EventImportance, List<Route>> otherCategories = new EnumMap<>(EventImportance.class);
+
+	public NotificationRouter() {
+		rebuild();
+	}
+
+	/**
+	 * Adds a target with its current subscription. Later changes to the target's
+	 * subscription (e.g. suppressUntil) are not seen by the router.
+	 */
+	public void add(NotificationTarget target) {
+		add(target, target.getSubscription());
+	}
+
+	public synchronized void add(NotificationTarget target, NotificationSubscription subscription) {
+		routes.add(new Route(target, subscription));
+		rebuild();
+	}
+
+	public int size() {
+		return routes.size();
+	}
+
+	private void rebuild() {
+		Set<String> knownCategories = new HashSet<String>();
+		for (Route route : routes) {
+			if (route.subscription.categories != null) {
+				knownCategories.addAll(route.subscription.categories);
+			}
+			knownCategories.addAll(route.subscription.excludedCategories);
+		}
+
+		Map<EventImportance, Map<String, List<Route>>> newByCategory = new EnumMap<>(EventImportance.class);
+		Map<EventImportance, List<Route>> newOther = new EnumMap<>(EventImportance.class);
+
+		for (EventImportance importance : EventImportance.values()) {
+			Map<String, List<Route>> categoryRoutes = new HashMap<String, List<Route>>();
+			for (String category : knownCategories) {
+				List<Route> matching = new ArrayList<Route>();
+				for (Route route : routes) {
+					if (route.subscription.accepts(importance, category)) {
+						matching.add(route);
+					}
+				}
+				categoryRoutes.put(category, matching);
+			}
+			newByCategory.put(importance, categoryRoutes);
+
+			List<Route> anyCategory = new ArrayList<Route>();
+			for (Route route : routes) {
+				if (route.subscription.importances.contains(importance) && route.subscription.acceptsAnyCategory()) {
+					anyCategory.add(route);
+				}
+			}
+			newOther.put(importance, anyCategory);
+		}
+
+		byCategory = newByCategory;
+		otherCategories = newOther;
+	}
+
+	private List<Route> routesFor(EventImportance importance, String category) {
+		List<Route> matching = byCategory.get(importance).get(category);
+		if (matching == null) {
+			matching = otherCategories.get(importance);
+		}
+		return (matching == null) ? Collections.<Route>emptyList() : matching;
+	}
+
+	public void dispatch(LoggableEvent event) {
+		if (event == null) {
+			return;
+		}
+
+		int minutes = event.contestTimeMinutes();
+		for (Route route : routesFor(event.importance, event.getCategory())) {
+			if (minutes < route.subscription.suppressUntilMinutes) {
+				continue;
+			}
+			try {
+				route.target.notify(event);
+			} catch (Exception e) {
+				logger.error(String.format("Error notifying %s: %s", route.target, e));
+			}
+		}
+	}
+}
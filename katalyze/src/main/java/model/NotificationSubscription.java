@@ -0,0 +1,98 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes which events a notification target wants to receive: a set of importances,
+ * optionally restricted to (or excluding) some categories, and nothing before a given contest minute.
+ * Instances are immutable; the with/without methods return modified copies.
+ */
+public class NotificationSubscription {
+	final EnumSet<EventImportance> importances;
+	final Set<String> categories;
+	final Set<String> excludedCategories;
+	final int suppressUntilMinutes;
+
+	private NotificationSubscription(EnumSet<EventImportance> importances, Set<String> categories,
+									 Set<String> excludedCategories, int suppressUntilMinutes) {
+		this.importances = importances;
+		this.categories = categories;
+		this.excludedCategories = excludedCategories;
+		this.suppressUntilMinutes = suppressUntilMinutes;
+	}
+
+	public static NotificationSubscription all() {
+		return new NotificationSubscription(EnumSet.allOf(EventImportance.class), null,
+				Collections.<String>emptySet(), 0);
+	}
+
+	/**
+	 * Events of the given importance or anything more important.
+	 */
+	public static NotificationSubscription upTo(EventImportance leastImportant) {
+		return new NotificationSubscription(EnumSet.range(EventImportance.Breaking, leastImportant), null,
+				Collections.<String>emptySet(), 0);
+	}
+
+	public NotificationSubscription onlyCategories(String... categories) {
+		return new NotificationSubscription(importances, new HashSet<String>(Arrays.asList(categories)),
+				excludedCategories, suppressUntilMinutes);
+	}
+
+	public NotificationSubscription withoutCategories(String... categories) {
+		Set<String> excluded = new HashSet<String>(excludedCategories);
+		excluded.addAll(Arrays.asList(categories));
+		return new NotificationSubscription(importances, this.categories, excluded, suppressUntilMinutes);
+	}
+
+	public NotificationSubscription suppressUntil(int contestMinutes) {
+		return new NotificationSubscription(importances, categories, excludedCategories, contestMinutes);
+	}
+
+	/**
+	 * Events accepted by both this subscription and the other one.
+	 */
+	public NotificationSubscription intersect(NotificationSubscription other) {
+		EnumSet<EventImportance> commonImportances = EnumSet.copyOf(importances);
+		commonImportances.retainAll(other.importances);
+
+		Set<String> commonCategories;
+		if (categories == null) {
+			commonCategories = other.categories;
+		} else if (other.categories == null) {
+			commonCategories = categories;
+		} else {
+			commonCategories = new HashSet<String>(categories);
+			commonCategories.retainAll(other.categories);
+		}
+
+		Set<String> excluded = new HashSet<String>(excludedCategories);
+		excluded.addAll(other.excludedCategories);
+
+		return new NotificationSubscription(commonImportances, commonCategories, excluded,
+				Math.max(suppressUntilMinutes, other.suppressUntilMinutes));
+	}
+
+	public boolean accepts(EventImportance importance, String category) {
+		return importances.contains(importance) && acceptsCategory(category);
+	}
+
+	boolean acceptsCategory(String category) {
+		if (excludedCategories.contains(category)) {
+			return false;
+		}
+		return categories == null || categories.contains(category);
+	}
+
+	boolean acceptsAnyCategory() {
+		return categories == null;
+	}
+
+	public int getSuppressUntilMinutes() {
+		return suppressUntilMinutes;
+	}
+}
@@ -2,4 +2,13 @@ package model;
 
 public interface NotificationTarget {
 	void notify(LoggableEvent event);
+
+	/**
+	 * The events this target is interested in. Used by NotificationRouter to skip
+	 * targets that would ignore an event anyway. The router reads it once, when the
+	 * target is added, so it must be fully configured by then.
+	 */
+	default NotificationSubscription getSubscription() {
+		return NotificationSubscription.all();
+	}
 }
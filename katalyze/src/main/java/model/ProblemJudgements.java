@@ -16,6 +16,11 @@ public class ProblemJudgements implements Iterable<Judgement>{
 	ProblemJudgements(Problem problem) {
 		this.problem = problem;
 	}
+
+	ProblemJudgements(ProblemJudgements source) {
+		this.problem = source.problem;
+		this.judgements = new TreeSet<>(source.judgements);
+	}
 	
 	public boolean isSolved() {
 		for(Judgement s : judgements) {
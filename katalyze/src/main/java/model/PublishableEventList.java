@@ -1,49 +1,131 @@
 package model;
 
-import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import web.EventVector;
+import web.JsonArrayDocument;
 import web.Publisher;
-import web.StaticWebDocument;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Publishes a growing list of events. Besides the complete list at url, the events are split
+ * into fixed-size pages: url/page/<index> is published once when the page is full and never
+ * changes after that, while url/head holds the events of the page being filled.
+ * 
+ * Each event is serialized once when it is added; the published documents reuse those bytes.
+ */
 public class PublishableEventList {
+	public static final int DefaultPageSize = 100;
+	static final String contentType = "application/json; charset=utf-8";
 
+	/* Distinguishes the versions of lists that were cleared or recreated, also across restarts */
+	static final AtomicLong generations = new AtomicLong(System.currentTimeMillis());
 
 	EventVector data = new EventVector();
 
-	JSONArray jsonEvents = new JSONArray();
 	final String url;
 	final Publisher publisher;
+	final int pageSize;
+
+	List<byte[][]> fullPages = new ArrayList<byte[][]>();
+	List<byte[]> fullPageSingles = new ArrayList<byte[]>();
+	byte[][] headPage;
+	byte[] headSingle;
+	int headCount;
+	long generation;
 	
 
 	public PublishableEventList(Publisher publisher, String url) {
+		this(publisher, url, DefaultPageSize);
+	}
+
+	public PublishableEventList(Publisher publisher, String url, int pageSize) {
 		this.url = url;
 		this.publisher = publisher;
+		this.pageSize = pageSize;
+		reset();
+	}
+
+	private void reset() {
+		fullPages = new ArrayList<byte[][]>();
+		fullPageSingles = new ArrayList<byte[]>();
+		headPage = new byte[pageSize][];
+		headSingle = null;
+		headCount = 0;
+		generation = generations.incrementAndGet();
+	}
+
+	private int size() {
+		return fullPages.size() * pageSize + headCount;
+	}
+
+	private byte[] fingerprint(String documentUrl) {
+		try {
+			String version = String.format("%s#%d#%d", documentUrl, generation, size());
+			return MessageDigest.getInstance("SHA-256").digest(version.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	private void publishPage(int index) {
+		List<byte[][]> page = Collections.singletonList(fullPages.get(index));
+		publisher.publish(url + "/page/" + index, new JsonArrayDocument(contentType, new byte[0], page, pageSize,
+				fullPageSingles.get(index), new byte[0], null));
 	}
 		
 	private void publish() {
-		String jsonString = jsonEvents.toString(2);
-		StaticWebDocument doc = new StaticWebDocument("application/json; charset=utf-8", jsonString);
-		publisher.publish(url, doc);
+		List<byte[][]> allPages = new ArrayList<byte[][]>(fullPages.size() + 1);
+		allPages.addAll(fullPages);
+		allPages.add(headPage);
+		byte[] firstSingle = fullPages.isEmpty() ? headSingle : fullPageSingles.get(0);
+		publisher.publish(url, new JsonArrayDocument(contentType, new byte[0], allPages, size(),
+				firstSingle, new byte[0], fingerprint(url)));
+
+		String headPrefix = String.format("{\"pageSize\": %d, \"pages\": %d, \"count\": %d, \"events\": ",
+				pageSize, fullPages.size(), size());
+		publisher.publish(url + "/head", new JsonArrayDocument(contentType, headPrefix.getBytes(StandardCharsets.UTF_8),
+				Collections.singletonList(headPage), headCount, headSingle, "}".getBytes(StandardCharsets.UTF_8), fingerprint(url + "/head")));
 	}
 	
 	public void clear() {
-		jsonEvents.clear();
+		reset();
 		publish();
 	}
 
 	public Iterator<LoggableEvent> iterator() {
 		return data.iterator();
 	}
+
+	public EventVector getEvents() {
+		return data;
+	}
 	
 	public void add(LoggableEvent event) {
 		data.add(event);
 
 		JSONObject eventInfo = getJsonObject(event);
-		
-		jsonEvents.add(eventInfo);
+		if (headCount == 0) {
+			headSingle = eventInfo.toString(2).getBytes(StandardCharsets.UTF_8);
+		}
+		headPage[headCount++] = eventInfo.toString(2, 2).getBytes(StandardCharsets.UTF_8);
+
+		if (headCount == pageSize) {
+			// The page is complete and will never change again
+			fullPages.add(headPage);
+			fullPageSingles.add(headSingle);
+			publishPage(fullPages.size() - 1);
+			headPage = new byte[pageSize][];
+			headSingle = null;
+			headCount = 0;
+		}
 		publish();
 		
 	}
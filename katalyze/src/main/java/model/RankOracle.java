@@ -0,0 +1,94 @@
+package model;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * Answers "where would this score land?" for hypothetical scores, such as a FakeScore with one
+ * more problem solved, by binary search over the sort keys of a fixed standings table.
+ */
+public class RankOracle {
+	final ScoreTableEntry[] entries;
+	final int[] solved;
+	final int[] time;
+	final int[] lastAccepted;
+
+	public RankOracle(List<? extends ScoreTableEntry> sortedScores) {
+		int n = sortedScores.size();
+		entries = sortedScores.toArray(new ScoreTableEntry[n]);
+		solved = new int[n];
+		time = new int[n];
+		lastAccepted = new int[n];
+		for (int i = 0; i < n; i++) {
+			solved[i] = entries[i].getNumberOfSolvedProblems();
+			time[i] = entries[i].getTimeIncludingPenalty();
+			lastAccepted[i] = entries[i].getLastAcceptedSubmission();
+		}
+	}
+
+	/**
+	 * Same order as ScoreTableComparer: positive if the entry at index ranks ahead of the given keys.
+	 */
+	private int compareTo(int index, int otherSolved, int otherTime, int otherLastAccepted) {
+		if (solved[index] != otherSolved) {
+			return (solved[index] > otherSolved) ? 1 : -1;
+		}
+		if (time[index] != otherTime) {
+			return (time[index] < otherTime) ? 1 : -1;
+		}
+		if (lastAccepted[index] != otherLastAccepted) {
+			return (lastAccepted[index] < otherLastAccepted) ? 1 : -1;
+		}
+		return 0;
+	}
+
+	/**
+	 * The number of entries that rank strictly ahead of the hypothetical score.
+	 */
+	public int entriesAhead(ScoreTableEntry hypothetical) {
+		int hSolved = hypothetical.getNumberOfSolvedProblems();
+		int hTime = hypothetical.getTimeIncludingPenalty();
+		int hLastAccepted = hypothetical.getLastAcceptedSubmission();
+
+		int low = 0;
+		int high = entries.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareTo(middle, hSolved, hTime, hLastAccepted) > 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The rank the hypothetical score would get if it replaced its team's actual score.
+	 */
+	public int rankOf(ScoreTableEntry hypothetical) {
+		return entriesAhead(hypothetical) + 1;
+	}
+
+	/**
+	 * How many penalty minutes the hypothetical score would be ahead of the entry just below it,
+	 * if that entry has solved the same number of problems.
+	 */
+	public OptionalInt marginToNext(ScoreTableEntry hypothetical) {
+		return marginAt(entriesAhead(hypothetical), hypothetical);
+	}
+
+	/**
+	 * The margin for a hypothetical score whose position from entriesAhead is already known.
+	 */
+	public OptionalInt marginAt(int position, ScoreTableEntry hypothetical) {
+		if (position < entries.length && solved[position] == hypothetical.getNumberOfSolvedProblems()) {
+			return OptionalInt.of(time[position] - hypothetical.getTimeIncludingPenalty());
+		}
+		return OptionalInt.empty();
+	}
+
+	public int size() {
+		return entries.length;
+	}
+}
@@ -0,0 +1,229 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the contest for everything that is published to the web.
+ * <p>
+ * The ingestion thread builds a new snapshot after each applied batch of events and
+ * publishes it through a single volatile reference in {@link Contest}, so readers on
+ * other threads never see a model that is half updated and never take a lock. Teams
+ * whose progress did not change since the previous snapshot share their frozen state
+ * with it, and so do the standings of groups none of whose members changed.
+ */
+public final class ReadModel {
+
+	/**
+	 * Frozen progress of a single team.
+	 */
+	public static final class TeamView {
+		final Team team;
+		final int revision;
+		final Score score;
+		final String mainLanguage;
+		final Map<Problem, String> languages;
+
+		TeamView(Team team) {
+			TeamProgress progress = team.getProgress();
+			this.team = team;
+			this.revision = progress.getRevision();
+			this.score = progress.snapshotScore();
+			this.mainLanguage = progress.getMainLanguage();
+			this.languages = Collections.unmodifiableMap(progress.getLanguages());
+		}
+
+		public Team getTeam() {
+			return team;
+		}
+
+		public Score getScore() {
+			return score;
+		}
+
+		public String getMainLanguage() {
+			return mainLanguage;
+		}
+
+		public String languageFor(Problem problem) {
+			return languages.get(problem);
+		}
+	}
+
+	/**
+	 * Standings restricted to the visible members of a group, with group-local ranks.
+	 */
+	public static final class GroupView {
+		final Group group;
+		final Set<Team> members;
+		final Standings standings;
+
+		GroupView(Group group, Set<Team> members, Standings standings) {
+			this.group = group;
+			this.members = members;
+			this.standings = standings;
+		}
+
+		public Group getGroup() {
+			return group;
+		}
+
+		public Standings getStandings() {
+			return standings;
+		}
+	}
+
+	final long version;
+	final long contestTimeMillis;
+	final ContestProperties properties;
+	final List<Problem> problems;
+	final List<Team> teams;
+	final Map<Team, TeamView> views;
+	final Standings standings;
+	final Map<String, GroupView> groups;
+
+	private ReadModel(ReadModel source, long contestTimeMillis) {
+		this.version = source.version + 1;
+		this.contestTimeMillis = contestTimeMillis;
+		this.properties = source.properties;
+		this.problems = source.problems;
+		this.teams = source.teams;
+		this.views = source.views;
+		this.standings = source.standings;
+		this.groups = source.groups;
+	}
+
+	private ReadModel(Contest contest, ReadModel previous, long contestTimeMillis, ContestProperties properties) {
+		this.version = (previous == null) ? 1 : previous.version + 1;
+		this.contestTimeMillis = contestTimeMillis;
+		this.properties = properties;
+		List<Problem> problems = new ArrayList<Problem>(contest.getProblems());
+		// Kept identical while unchanged, so documents can tell whether their columns moved
+		this.problems = (previous != null && previous.problems.equals(problems)) ? previous.problems : Collections.unmodifiableList(problems);
+
+		List<Team> allTeams = contest.teams.getAll();
+		Map<Team, TeamView> views = new IdentityHashMap<Team, TeamView>();
+		List<Score> scores = new ArrayList<Score>();
+		Set<Team> changed = Collections.newSetFromMap(new IdentityHashMap<Team, Boolean>());
+		for (Team team : allTeams) {
+			TeamView view = (previous == null) ? null : previous.views.get(team);
+			if (view == null || view.revision != team.getProgress().getRevision()) {
+				view = new TeamView(team);
+				changed.add(team);
+			}
+			views.put(team, view);
+			if (!team.isHidden()) {
+				scores.add(view.score);
+			}
+		}
+		this.teams = Collections.unmodifiableList(allTeams);
+		this.views = views;
+		this.standings = new Standings(contest, scores, contestTimeMillis);
+		// Built here so that readers only ever see it fully constructed
+		this.standings.getRankOracle();
+		this.groups = Collections.unmodifiableMap(buildGroups(contest, previous, changed));
+	}
+
+	/**
+	 * Splits the global ranking into groups. Members are taken in ranking order, so group
+	 * standings need no real sorting, and groups without changed members are reused as is.
+	 */
+	private Map<String, GroupView> buildGroups(Contest contest, ReadModel previous, Set<Team> changed) {
+		Map<String, Group> groupsById = new LinkedHashMap<String, Group>();
+		Map<String, List<Score>> scoresByGroup = new LinkedHashMap<String, List<Score>>();
+		for (Score score : standings) {
+			for (Group group : score.getTeam().getGroups()) {
+				List<Score> groupScores = scoresByGroup.get(group.getId());
+				if (groupScores == null) {
+					groupScores = new ArrayList<Score>();
+					scoresByGroup.put(group.getId(), groupScores);
+					groupsById.put(group.getId(), group);
+				}
+				groupScores.add(score);
+			}
+		}
+
+		Map<String, GroupView> groups = new LinkedHashMap<String, GroupView>();
+		for (Map.Entry<String, List<Score>> entry : scoresByGroup.entrySet()) {
+			List<Score> groupScores = entry.getValue();
+			Set<Team> members = Collections.newSetFromMap(new IdentityHashMap<Team, Boolean>());
+			boolean memberChanged = false;
+			for (Score score : groupScores) {
+				members.add(score.getTeam());
+				memberChanged |= changed.contains(score.getTeam());
+			}
+
+			GroupView view = (previous == null) ? null : previous.groups.get(entry.getKey());
+			if (view == null || memberChanged || !view.members.equals(members)) {
+				Standings groupStandings = new Standings(contest, groupScores, contestTimeMillis);
+				groupStandings.getRankOracle();
+				view = new GroupView(groupsById.get(entry.getKey()), Collections.unmodifiableSet(members), groupStandings);
+			}
+			groups.put(entry.getKey(), view);
+		}
+		return groups;
+	}
+
+	static ReadModel build(Contest contest, ReadModel previous, long contestTimeMillis, ContestProperties properties) {
+		return new ReadModel(contest, previous, contestTimeMillis, properties);
+	}
+
+	/**
+	 * The same snapshot at a later contest time. Standings keep the time they were built at.
+	 */
+	ReadModel at(long contestTimeMillis) {
+		return new ReadModel(this, contestTimeMillis);
+	}
+
+	/**
+	 * Increases with every published snapshot.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public long getContestTimeMillis() {
+		return contestTimeMillis;
+	}
+
+	public int getMinutesFromStart() {
+		return (int) (contestTimeMillis / 60000);
+	}
+
+	public int getLengthInMinutes() {
+		return (int) (properties.getDurationMillis() / 60000);
+	}
+
+	public List<Problem> getProblems() {
+		return problems;
+	}
+
+	public List<Team> getTeams() {
+		return teams;
+	}
+
+	public TeamView viewOf(Team team) {
+		return views.get(team);
+	}
+
+	public Standings getStandings() {
+		return standings;
+	}
+
+	/**
+	 * Groups with at least one visible team.
+	 */
+	public Collection<GroupView> getGroups() {
+		return groups.values();
+	}
+
+	public GroupView getGroup(String groupId) {
+		return groups.get(groupId);
+	}
+}
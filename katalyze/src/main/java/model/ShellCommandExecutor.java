@@ -0,0 +1,177 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Runs shell commands for notification targets on a small, bounded pool of worker threads.
+ * At most maxConcurrent child processes are alive at any time, each one is reaped and its
+ * exit status logged, and identical commands submitted within the coalescing window are
+ * only executed once.
+ */
+public class ShellCommandExecutor implements LifeCycleAware {
+	static Logger logger = Logger.getLogger(ShellCommandExecutor.class);
+	// What ProcessBuilder.Redirect.DISCARD (Java 9) points at
+	static final File NullDevice = new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+
+	final ThreadPoolExecutor workers;
+	final long coalesceMillis;
+	final long timeoutMillis;
+	final Map<String, Long> recentCommands = new HashMap<String, Long>();
+
+	final AtomicInteger executed = new AtomicInteger();
+	final AtomicInteger failed = new AtomicInteger();
+	final AtomicInteger coalesced = new AtomicInteger();
+	final AtomicInteger rejected = new AtomicInteger();
+	final AtomicLong totalRunMillis = new AtomicLong();
+
+	public ShellCommandExecutor(int maxConcurrent, int maxQueued, long coalesceMillis, long timeoutMillis) {
+		this.coalesceMillis = coalesceMillis;
+		this.timeoutMillis = timeoutMillis;
+		this.workers = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(maxQueued), runnable -> {
+					Thread t = new Thread(runnable, "shell-notifier");
+					t.setDaemon(true);
+					return t;
+				});
+		this.workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Queues a command for execution. Returns false if the command was coalesced with an
+	 * identical recent one, or dropped because the queue is full.
+	 */
+	public synchronized boolean submit(String command) {
+		long now = System.currentTimeMillis();
+		if (isDuplicate(command, now)) {
+			coalesced.incrementAndGet();
+			logger.debug(String.format("Coalesced duplicate command: %s", command));
+			return false;
+		}
+
+		try {
+			workers.execute(() -> run(command));
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			logger.warn(String.format("Too many pending commands, dropping: %s", command));
+			return false;
+		}
+		// Only accepted commands suppress their duplicates, so a dropped one can be retried
+		if (coalesceMillis > 0) {
+			recentCommands.put(command, now);
+		}
+		return true;
+	}
+
+	private boolean isDuplicate(String command, long now) {
+		if (coalesceMillis <= 0) {
+			return false;
+		}
+
+		Iterator<Map.Entry<String, Long>> iter = recentCommands.entrySet().iterator();
+		while (iter.hasNext()) {
+			if (now - iter.next().getValue() >= coalesceMillis) {
+				iter.remove();
+			}
+		}
+		return recentCommands.containsKey(command);
+	}
+
+	private static List<String> tokenize(String command) {
+		// Same splitting as Runtime.exec(String)
+		List<String> target = new ArrayList<String>();
+		StringTokenizer tokenizer = new StringTokenizer(command);
+		while (tokenizer.hasMoreTokens()) {
+			target.add(tokenizer.nextToken());
+		}
+		return target;
+	}
+
+	private void run(String command) {
+		long startTime = System.currentTimeMillis();
+		try {
+			logger.info(String.format("Executing: %s", command));
+			// Output is discarded by the OS, so a child that never closes it can still time out
+			Process process = new ProcessBuilder(tokenize(command))
+					.redirectErrorStream(true)
+					.redirectOutput(NullDevice)
+					.start();
+			process.getOutputStream().close();
+
+			boolean finished = process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+			long duration = System.currentTimeMillis() - startTime;
+			totalRunMillis.addAndGet(duration);
+			executed.incrementAndGet();
+
+			if (!finished) {
+				process.destroyForcibly().waitFor();
+				failed.incrementAndGet();
+				logger.warn(String.format("'%s' did not finish within %d ms and was killed", command, timeoutMillis));
+			} else if (process.exitValue() != 0) {
+				failed.incrementAndGet();
+				logger.warn(String.format("'%s' exited with status %d after %d ms", command, process.exitValue(), duration));
+			} else {
+				logger.debug(String.format("'%s' completed in %d ms", command, duration));
+			}
+		} catch (IOException e) {
+			failed.incrementAndGet();
+			logger.error(String.format("Error executing '%s':%s", command, e));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getExecutedCount() {
+		return executed.get();
+	}
+
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	public int getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	public int getRejectedCount() {
+		return rejected.get();
+	}
+
+	public long getTotalRunMillis() {
+		return totalRunMillis.get();
+	}
+
+	@Override
+	public void start() {
+		// Worker threads are created on demand
+	}
+
+	@Override
+	public void stop() throws InterruptedException {
+		workers.shutdown();
+		if (!workers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+			workers.shutdownNow();
+		}
+		logger.info(String.format("Shell notifier stopped. %d executed, %d failed, %d coalesced, %d dropped",
+				executed.get(), failed.get(), coalesced.get(), rejected.get()));
+	}
+
+	@Override
+	public String toString() {
+		return "ShellCommandExecutor";
+	}
+}
@@ -1,39 +1,36 @@
 package model;
 
-import java.io.IOException;
-
 import org.apache.log4j.Logger;
 
 public class ShellNotificationTarget implements NotificationTarget {
 	static Logger logger = Logger.getLogger(ShellNotificationTarget.class);
 
 	String template;
-	Runtime runtime;
+	final ShellCommandExecutor executor;
 	int suppressedMinutes = 0;
 	
-	public ShellNotificationTarget(String template) {
+	public ShellNotificationTarget(String template, ShellCommandExecutor executor) {
 		this.template = template;
-		this.runtime = Runtime.getRuntime();
+		this.executor = executor;
 	}
 	
+	/**
+	 * Only takes effect if called before the target is added to a router.
+	 */
 	public void suppressUntil(int contestMinutes) {
 		this.suppressedMinutes = contestMinutes;
 	}
 	
 	
+	@Override
+	public NotificationSubscription getSubscription() {
+		return NotificationSubscription.all().suppressUntil(suppressedMinutes);
+	}
+	
 	@Override
 	public void notify(LoggableEvent event) {
-		if (event.contestTimeMinutes() < suppressedMinutes) {
-			return;
-		}
-		
 		String command = substituteTags(event);
-		try {
-			logger.info(String.format("Executing: %s", command));
-			runtime.exec(command);
-		} catch (IOException e) {
-			logger.error(String.format("Error executing '%s':%s", command, e));
-		}
+		executor.submit(command);
 	}
 	
 	public static String escape(String source) {
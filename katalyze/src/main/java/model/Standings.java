@@ -8,6 +8,7 @@ public class Standings implements Iterable<Score> {
 	private Contest contest;
 	private long contestTimeMillis;
 	private List<Score> scores;
+	private RankOracle rankOracle;
 
 	@Override
 	public Iterator<Score> iterator() {
@@ -36,6 +37,10 @@ public class Standings implements Iterable<Score> {
 		throw new AssertionError(String.format("%s is not a known team", team));
 	}
 
+	public int size() {
+		return scores.size();
+	}
+
 	public boolean isNothingSolved() {
 		return scores.get(0).solvedProblemCount() == 0;
 	}
@@ -48,6 +53,16 @@ public class Standings implements Iterable<Score> {
 		return this.contest;
 	}
 
+	/**
+	 * Oracle for the rank hypothetical scores would get in these standings.
+	 */
+	public RankOracle getRankOracle() {
+		if (rankOracle == null) {
+			rankOracle = new RankOracle(scores);
+		}
+		return rankOracle;
+	}
+
 	public int rankOf(Team team) {
 		if (team.isHidden()) {
 			return Integer.MAX_VALUE;
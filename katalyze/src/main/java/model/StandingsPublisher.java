@@ -3,4 +3,10 @@ package model;
 public interface StandingsPublisher {
 	void publishStandings();
 
+	/**
+	 * Called as soon as a judgement changed the standings, between the regular publications.
+	 */
+	default void standingsChanged() {
+	}
+
 }
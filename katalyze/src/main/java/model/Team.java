@@ -78,6 +78,10 @@ public class Team implements ApiEntity {
 	public Score getCurrentScore() {
 		return progress.calculateScore();
 	}
+
+	TeamProgress getProgress() {
+		return progress;
+	}
 	
 	public Contest getContest() {
 		return this.contest;
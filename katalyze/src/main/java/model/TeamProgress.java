@@ -12,12 +12,28 @@ public class TeamProgress {
 	private final Map<String, InitialSubmission> openSubmissions = new HashMap<>();
 	private final Team team;
 	private String mainLanguage = null;
+	private int revision = 0;
 	
 	public TeamProgress(Team team) {
 		this.team = team;
 	}
 	
 	public Score calculateScore() {
+		return calculateScore(judgements);
+	}
+
+	/**
+	 * Score over a copy of the judgements, unaffected by later submissions.
+	 */
+	Score snapshotScore() {
+		Map<Problem, ProblemJudgements> copy = new HashMap<Problem, ProblemJudgements>();
+		for (Map.Entry<Problem, ProblemJudgements> entry : judgements.entrySet()) {
+			copy.put(entry.getKey(), new ProblemJudgements(entry.getValue()));
+		}
+		return calculateScore(copy);
+	}
+
+	private Score calculateScore(Map<Problem, ProblemJudgements> judgements) {
 		HashSet<Problem> solvedProblems = new HashSet<Problem>();
 		
 		int timeIncludingPenalty = 0;
@@ -83,9 +99,21 @@ public class TeamProgress {
 		return mainLanguage;
 	}
 
+	Map<Problem, String> getLanguages() {
+		return new HashMap<Problem, String>(languages);
+	}
+
+	/**
+	 * Incremented by every registered submission or judgement.
+	 */
+	int getRevision() {
+		return revision;
+	}
+
 
 
 	public void registerInitialSubmission(InitialSubmission initialSubmission) {
+		revision++;
 		languages.put(initialSubmission.getProblem(), initialSubmission.language);
 		mainLanguage = calculateMainLanguage();
 		openSubmissions.put(initialSubmission.id, initialSubmission);
@@ -93,6 +121,7 @@ public class TeamProgress {
 
 
 	public boolean register(Judgement newJudgement) {
+		revision++;
 		InitialSubmission submission = openSubmissions.remove(newJudgement.initialSubmission.id);
 		if (submission == null) {
 			logger.debug(String.format("Judgement %s registered for team %s although submission was already judged",
@@ -1,10 +1,10 @@
 package rules;
 
+import io.CommentaryStore;
+import io.MySqlCommentaryStore;
 import model.InitialSubmission;
 import org.apache.log4j.Logger;
 import model.Judgement;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -16,10 +16,14 @@ public class AllSubmissions implements StandingsUpdatedEvent {
     private static Logger logger = Logger.getLogger(AllSubmissions.class);
     private static DateFormat df = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 
-    private final Connection conn;
+    private final CommentaryStore store;
 
 	public AllSubmissions(DatabaseNotificationConfig dbConfig) throws Exception{
-		conn = dbConfig.createConnection();
+		this(new MySqlCommentaryStore(dbConfig));
+	}
+
+	public AllSubmissions(CommentaryStore store) {
+		this.store = store;
 	}
 
     public void onStandingsUpdated(StandingsTransition transition) {
@@ -27,19 +31,13 @@ public class AllSubmissions implements StandingsUpdatedEvent {
         InitialSubmission initialSubmission = submission.getInitialSubmission();
 
         try {
-            PreparedStatement s;
-            s = conn.prepareStatement("insert into submissions (problem_id, team_id, lang_id, result, date, contest_time, submission_id) values (?, ?, ?, ?, ?, ?, ?)");
-            s.setString(1, submission.getProblem().getLabel());
-            s.setString(2, submission.getTeam().getId());
-            s.setString(3, initialSubmission.getLanguage());
-            s.setString(4, submission.getOutcome());
-            s.setString(5, df.format(new Date()));
-            s.setInt(6, submission.getInitialSubmission().minutesFromStart);
-            s.setString(7, initialSubmission.id);
-
-            s.executeUpdate();
-
-            logger.debug("inserted into db: " + s);
+            String date;
+            synchronized (df) {
+                date = df.format(new Date());
+            }
+            store.addSubmission(submission.getProblem().getLabel(), submission.getTeam().getId(),
+                    initialSubmission.getLanguage(), submission.getOutcome(), date,
+                    initialSubmission.minutesFromStart, initialSubmission.id);
         } catch (Exception e) {
         	String message = e.getMessage();
         	String logMessage = "Error adding judgement to database: "+message;
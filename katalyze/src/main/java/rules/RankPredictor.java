@@ -7,7 +7,6 @@ import java.util.Map;
 import model.*;
 
 public class RankPredictor extends StateComparingRuleBase implements SolutionSubmittedEvent{
-	final private static ScoreTableComparer comparator = new ScoreTableComparer();
 	
 	final private int rankThreshold;
 
@@ -49,24 +48,8 @@ public class RankPredictor extends StateComparingRuleBase implements SolutionSub
 		}
 		ScoreTableEntry fakeScore = FakeScore.PretendProblemSolved(teamScore, submission.problem, submission.minutesFromStart);
 		
-		ArrayList<ScoreTableEntry> scoresAbove = new ArrayList<ScoreTableEntry>();
-
 		int currentRank = standingsBefore.rankOf(team);
-		
-		for (ScoreTableEntry candidate : standingsBefore) {
-			if (candidate != teamScore) {
-				scoresAbove.add(candidate);
-			} else {
-				break;
-			}
-		}
-		
-		int fakeIndex = scoresAbove.size()-1;
-		
-		while (fakeIndex>=0 && comparator.compare(fakeScore, scoresAbove.get(fakeIndex))<=0) {
-			fakeIndex--;
-		}
-		int potentialRank = fakeIndex+2;
+		int potentialRank = standingsBefore.getRankOracle().rankOf(fakeScore);
 		
 		if (potentialRank <= rankThreshold) {
 
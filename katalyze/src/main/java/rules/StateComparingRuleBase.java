@@ -1,29 +1,19 @@
 package rules;
 
-import java.util.ArrayList;
-import katalyzeapp.DatabaseNotificationConfig;
 import org.apache.log4j.Logger;
 import model.*;
 
 public abstract class StateComparingRuleBase {
 	static Logger logger = Logger.getLogger(StateComparingRuleBase.class);
 	
-	private final ArrayList<NotificationTarget> targets = new ArrayList<NotificationTarget>();
+	private final NotificationRouter targets = new NotificationRouter();
 	
 	public void addNotificationTarget(NotificationTarget target) {
 		targets.add(target);
 	}
 	
 	void notify(LoggableEvent event) {
-		if (event != null) {
-			for (NotificationTarget target : targets) {
-				try {
-					target.notify(event);
-				} catch (Exception e) {
-					logger.error(String.format("Error notifying %s: %s", target, e));
-				}
-			}
-		}
+		targets.dispatch(event);
 	}
 
 
@@ -0,0 +1,48 @@
+package web;
+
+import io.Sink;
+import jsonfeed.JsonEvent;
+import model.LifeCycleAware;
+import model.LoggableEvent;
+import model.NotificationTarget;
+import net.sf.json.JSONObject;
+
+/**
+ * The incoming contest events, interleaved with the commentary generated from them, as one
+ * NDJSON feed. Incoming events are passed on before they are processed, so commentary always
+ * follows the event that caused it.
+ */
+public class AugmentedEventFeed implements Sink<JsonEvent>, NotificationTarget, LifeCycleAware {
+	final SegmentedEventFeed feed;
+	final LoggableEventSerializer serializer = new LoggableEventSerializer();
+
+	public AugmentedEventFeed(SegmentedEventFeed feed) {
+		this.feed = feed;
+	}
+
+	public SegmentedEventFeed getFeed() {
+		return feed;
+	}
+
+	@Override
+	public void send(JsonEvent event) {
+		if (event != null && event.getSource() != null) {
+			// Copied, since the feed adds its own token to the event
+			feed.append(JSONObject.fromObject(event.getSource()));
+		}
+	}
+
+	@Override
+	public void notify(LoggableEvent event) {
+		feed.append(serializer.getJsonObject(event));
+	}
+
+	@Override
+	public void start() {
+	}
+
+	@Override
+	public void stop() {
+		feed.close();
+	}
+}
@@ -0,0 +1,117 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Serves a {@link SegmentedEventFeed} as NDJSON. Every line carries a "token"; a client that
+ * reconnects with since_token=&lt;token&gt; continues with the event after it. Tokens whose
+ * events have been dropped from memory, or that were issued before a restart, get 410 Gone.
+ * With stream=false the events available so far are sent and the response ends.
+ */
+@SuppressWarnings("restriction")
+public class AugmentedEventFeedStreamer implements WebHandler {
+	static Logger logger = Logger.getLogger(AugmentedEventFeedStreamer.class);
+	static final byte[] KeepAlive = "\n".getBytes(StandardCharsets.US_ASCII);
+
+	final SegmentedEventFeed feed;
+	final String path;
+	final long idleTimeoutMillis = 30000;
+
+	public AugmentedEventFeedStreamer(SegmentedEventFeed feed, String path) {
+		this.feed = feed;
+		this.path = path;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return path;
+	}
+
+	@Override
+	public boolean matches(HttpExchange exchange) {
+		return (exchange.getRequestMethod().equalsIgnoreCase("GET")) &&
+		exchange.getRequestURI().getPath().equalsIgnoreCase(path);
+	}
+
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(status, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.getResponseBody().close();
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		Map<String, String> query = QueryString.parse(exchange.getRequestURI());
+		String sinceToken = query.get("since_token");
+		boolean stream = !"false".equalsIgnoreCase(query.get("stream"));
+
+		long position = feed.getOldestResumable();
+		if (sinceToken != null) {
+			long since;
+			try {
+				since = feed.parseToken(sinceToken);
+			} catch (IllegalArgumentException e) {
+				sendError(exchange, 400, String.format("Invalid query: %s", e.getMessage()));
+				return;
+			}
+			if (since > feed.getLastToken()) {
+				sendError(exchange, 400, String.format("Invalid query: token %s has not been issued", sinceToken));
+				return;
+			}
+			if (since < position) {
+				sendError(exchange, 410, String.format("Events after token %s are no longer available", sinceToken));
+				return;
+			}
+			position = since;
+		}
+
+		Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Content-Type", "application/x-ndjson; charset=utf-8");
+		responseHeaders.set("Access-Control-Allow-Origin", "*");
+		responseHeaders.set("Transfer-Encoding", "chunked");
+		exchange.sendResponseHeaders(200, 0);
+
+		OutputStream responseBody = exchange.getResponseBody();
+		try {
+			while (true) {
+				SegmentedEventFeed.Chunk chunk = feed.read(position);
+				if (chunk != null) {
+					// The segment bytes are shared by all subscribers and written as they are
+					responseBody.write(chunk.bytes, chunk.offset, chunk.length);
+					position = chunk.lastToken;
+					continue;
+				}
+				responseBody.flush();
+				if (!stream || feed.isClosed()) {
+					break;
+				}
+				if (!feed.await(position, idleTimeoutMillis) && !feed.isClosed()) {
+					responseBody.write(KeepAlive);
+				}
+			}
+		}
+		catch (IllegalArgumentException e) {
+			// The client fell behind by more than the feed keeps in memory
+			logger.info(String.format("Ending %s stream: %s", path, e.getMessage()));
+		}
+		catch (InterruptedException e) {
+			responseBody.flush();
+		}
+		responseBody.close();
+	}
+}
@@ -0,0 +1,83 @@
+package web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes varint-packed binary documents into a growable byte buffer that can be reused
+ * between documents.
+ * <p>
+ * Unsigned integers are LEB128 varints: seven bits per byte, least significant group first,
+ * with the high bit set on every byte but the last. Signed integers are zigzag encoded first
+ * (0, -1, 1, -2, ... become 0, 1, 2, 3, ...). Strings are a varint byte length followed by
+ * that many bytes of UTF-8.
+ */
+public class BinaryWriter {
+	byte[] buffer;
+	int size = 0;
+
+	public BinaryWriter(int initialCapacity) {
+		this.buffer = new byte[Math.max(16, initialCapacity)];
+	}
+
+	/**
+	 * Discards the contents but keeps the buffer for the next document.
+	 */
+	public BinaryWriter reset() {
+		size = 0;
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+		}
+	}
+
+	public BinaryWriter writeByte(int b) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) b;
+		return this;
+	}
+
+	public BinaryWriter writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+		return this;
+	}
+
+	/**
+	 * Unsigned varint. Negative values are not allowed; use {@link #signed(long)} for those.
+	 */
+	public BinaryWriter varint(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException(String.format("%d can't be written as an unsigned varint", value));
+		}
+		ensureCapacity(10);
+		while (value >= 0x80) {
+			buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[size++] = (byte) value;
+		return this;
+	}
+
+	public BinaryWriter signed(long value) {
+		return varint((value << 1) ^ (value >> 63));
+	}
+
+	public BinaryWriter string(String value) {
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		varint(encoded.length);
+		return writeBytes(encoded);
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+}
@@ -3,33 +3,58 @@ package web;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class CompressedWebDocument implements WebDocument {
+	public static final String Gzip = "gzip";
+	public static final String Deflate = "deflate";
+
 	final String contentType;
+	final String encoding;
 	final byte[] compressedContent;
 
 	
 	static WebDocument Compress(WebDocument source) {
-		if (source.isGzipCompressed()) {
+		return Compress(source, Gzip, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	static WebDocument Compress(WebDocument source, String encoding, int level) {
+		if (source.getContentEncoding() != null) {
 			return source;
 		}
 		
-		return new CompressedWebDocument(source.getContentType(), compress(source));
+		return new CompressedWebDocument(source.getContentType(), encoding, compress(source, encoding, level));
 		
 	}
 	
 	public CompressedWebDocument(String contentType, byte[] compressedContent) {
+		this(contentType, Gzip, compressedContent);
+	}
+
+	public CompressedWebDocument(String contentType, String encoding, byte[] compressedContent) {
 		this.contentType = contentType;
+		this.encoding = encoding;
 		this.compressedContent = compressedContent;
 	}
 	
-    private static byte[] compress(WebDocument source){
+    private static byte[] compress(WebDocument source, String encoding, int level){
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
         try{
-            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream);
-            source.writeContents(gzipOutputStream);
-            gzipOutputStream.close();
+            OutputStream compressor;
+            if (Deflate.equals(encoding)) {
+                // HTTP "deflate" is the zlib format, which is what DeflaterOutputStream produces
+                compressor = new DeflaterOutputStream(byteArrayOutputStream, new Deflater(level));
+            } else {
+                compressor = new GZIPOutputStream(byteArrayOutputStream) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            }
+            source.writeContents(compressor);
+            compressor.close();
             byteArrayOutputStream.flush();            
         } catch(IOException e){
         		throw new RuntimeException(e);
@@ -50,6 +75,16 @@ public class CompressedWebDocument implements WebDocument {
 
 	@Override
 	public boolean isGzipCompressed() {
-		return true;
+		return Gzip.equals(encoding);
+	}
+
+	@Override
+	public String getContentEncoding() {
+		return encoding;
+	}
+
+	@Override
+	public long getContentLength() {
+		return compressedContent.length;
 	}
 }
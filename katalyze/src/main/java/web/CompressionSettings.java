@@ -0,0 +1,39 @@
+package web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Compression effort per content type. A level is chosen by the first registered
+ * content type fragment (e.g. "json" or "javascript") contained in the document's content type.
+ */
+public class CompressionSettings {
+	final int defaultLevel;
+	final Map<String, Integer> levels = new LinkedHashMap<String, Integer>();
+
+	public CompressionSettings(int defaultLevel) {
+		this.defaultLevel = clamp(defaultLevel);
+	}
+
+	private static int clamp(int level) {
+		return Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, level));
+	}
+
+	public CompressionSettings setLevel(String contentTypeFragment, int level) {
+		levels.put(contentTypeFragment.toLowerCase(), clamp(level));
+		return this;
+	}
+
+	public int levelFor(String contentType) {
+		if (contentType != null) {
+			String lowerCaseType = contentType.toLowerCase();
+			for (Map.Entry<String, Integer> entry : levels.entrySet()) {
+				if (lowerCaseType.contains(entry.getKey())) {
+					return entry.getValue();
+				}
+			}
+		}
+		return defaultLevel;
+	}
+}
@@ -1,19 +1,57 @@
 package web;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 
+import org.apache.log4j.Logger;
 
+
+/**
+ * The contents of a file as they were when the document was created. The file is read once,
+ * so requests are served from memory; WatchedFiles publishes a new document when the file changes.
+ */
 public class DynamicFileWebDocument implements WebDocument {
-	File sourceFile;
-	String contentType;
+	static final Logger logger = Logger.getLogger(DynamicFileWebDocument.class);
+
+	final File sourceFile;
+	final String contentType;
+	final byte[] contents;
+	final long lastModified;
 
 	public DynamicFileWebDocument(String contentType, String fileName) {
-		this.sourceFile = new File(fileName);
+		this(contentType, new File(fileName));
+	}
+
+	public DynamicFileWebDocument(String contentType, File sourceFile) {
+		this.sourceFile = sourceFile;
 		this.contentType = contentType;
-		
+
+		long modified = sourceFile.lastModified();
+		byte[] read = null;
+		try {
+			read = Files.readAllBytes(sourceFile.toPath());
+		} catch (IOException e) {
+			logger.warn(String.format("Unable to read %s: %s", sourceFile, e));
+		}
+		this.contents = read;
+		this.lastModified = modified;
+	}
+
+	/**
+	 * True if the file was readable when this document was created.
+	 */
+	public boolean isLoaded() {
+		return contents != null;
+	}
+
+	/**
+	 * True if the file on disk no longer matches the contents of this document.
+	 */
+	public boolean isStale() {
+		return sourceFile.lastModified() != lastModified || (contents != null && sourceFile.length() != contents.length);
 	}
 
 	@Override
@@ -23,11 +61,9 @@ public class DynamicFileWebDocument implements WebDocument {
 
 	@Override
 	public void writeContents(OutputStream target) throws IOException {
-		byte[] contents = new byte[(int) sourceFile.length()];
-		FileInputStream fis = new FileInputStream(sourceFile);
-		fis.read(contents);
-		fis.close();
-
+		if (contents == null) {
+			throw new FileNotFoundException(sourceFile.toString());
+		}
 		target.write(contents);
 	}
 
@@ -35,6 +71,10 @@ public class DynamicFileWebDocument implements WebDocument {
 	public boolean isGzipCompressed() {
 		return false;
 	}	
-	
+
+	@Override
+	public long getContentLength() {
+		return (contents == null) ? -1 : contents.length;
+	}
 	
 }
@@ -0,0 +1,191 @@
+package web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.util.JSONUtils;
+
+/**
+ * A scoreboard encoded as a JSON array of rows, together with where each row's fields and
+ * problem cells are in the bytes. This lets the ScoreboardHistory compare publications
+ * without parsing them again.
+ */
+public class EncodedScoreboard {
+	public static final JsonWriter.Name TeamId = new JsonWriter.Name("team_id");
+	public static final JsonWriter.Name Problems = new JsonWriter.Name("problems");
+	static final JsonWriter.Name ProblemId = new JsonWriter.Name("problem_id");
+
+	public static class Row {
+		final String teamId;
+		int start;
+		int end;
+		JsonWriter.Name[] fieldNames = new JsonWriter.Name[8];
+		int[] fieldRanges = new int[16];
+		int fieldCount = 0;
+		String[] cellIds;
+		int[] cellRanges;
+		int cellCount = 0;
+
+		Row(String teamId, int expectedCells) {
+			this.teamId = teamId;
+			this.cellIds = new String[Math.max(1, expectedCells)];
+			this.cellRanges = new int[2 * cellIds.length];
+		}
+
+		int indexOfField(JsonWriter.Name name) {
+			for (int i = 0; i < fieldCount; i++) {
+				if (fieldNames[i].equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		int indexOfCell(String problemId) {
+			for (int i = 0; i < cellCount; i++) {
+				if (cellIds[i].equals(problemId)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Records row, field and cell positions while a scoreboard is written into a JsonWriter.
+	 * The calls bracket the corresponding writer calls, e.g. beginField(name) takes the place
+	 * of writer.name(name) and endField() follows the value.
+	 */
+	public static class Builder {
+		final JsonWriter writer;
+		final int expectedCells;
+		final List<Row> rows = new ArrayList<Row>();
+		Row row;
+
+		public Builder(JsonWriter writer, int expectedCells) {
+			this.writer = writer;
+			this.expectedCells = expectedCells;
+		}
+
+		public Builder beginRow(String teamId) {
+			row = new Row(teamId, expectedCells);
+			row.start = writer.size();
+			writer.beginObject();
+			return this;
+		}
+
+		public Builder endRow() {
+			writer.endObject();
+			row.end = writer.size();
+			rows.add(row);
+			row = null;
+			return this;
+		}
+
+		public Builder beginField(JsonWriter.Name name) {
+			writer.name(name);
+			if (row.fieldCount == row.fieldNames.length) {
+				row.fieldNames = Arrays.copyOf(row.fieldNames, row.fieldCount * 2);
+				row.fieldRanges = Arrays.copyOf(row.fieldRanges, row.fieldCount * 4);
+			}
+			row.fieldNames[row.fieldCount] = name;
+			row.fieldRanges[2 * row.fieldCount] = writer.size();
+			return this;
+		}
+
+		public Builder endField() {
+			row.fieldRanges[2 * row.fieldCount + 1] = writer.size();
+			row.fieldCount++;
+			return this;
+		}
+
+		public Builder beginCell(String problemId) {
+			if (row.cellCount == row.cellIds.length) {
+				row.cellIds = Arrays.copyOf(row.cellIds, row.cellCount * 2);
+				row.cellRanges = Arrays.copyOf(row.cellRanges, row.cellCount * 4);
+			}
+			row.cellIds[row.cellCount] = problemId;
+			// The separating comma is written by the next writer call, so the cell starts after it
+			writer.beginObject();
+			row.cellRanges[2 * row.cellCount] = writer.size() - 1;
+			return this;
+		}
+
+		public Builder endCell() {
+			writer.endObject();
+			row.cellRanges[2 * row.cellCount + 1] = writer.size();
+			row.cellCount++;
+			return this;
+		}
+
+		public EncodedScoreboard build() {
+			return new EncodedScoreboard(writer.toByteArray(), rows);
+		}
+	}
+
+	final byte[] bytes;
+	final List<Row> rows;
+
+	EncodedScoreboard(byte[] bytes, List<Row> rows) {
+		this.bytes = bytes;
+		this.rows = rows;
+	}
+
+	/**
+	 * The scoreboard as a JSON document.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * Encodes a scoreboard that was built with json-lib.
+	 */
+	public static EncodedScoreboard fromJson(JSONArray scoreboard) {
+		JsonWriter writer = new JsonWriter();
+		Builder builder = new Builder(writer, 0);
+		writer.beginArray();
+		for (Object rowObject : scoreboard) {
+			JSONObject row = (JSONObject) rowObject;
+			builder.beginRow(String.valueOf(row.get(TeamId.getName())));
+			for (Iterator<?> keys = row.keys(); keys.hasNext(); ) {
+				String key = (String) keys.next();
+				Object value = row.get(key);
+				builder.beginField(new JsonWriter.Name(key));
+				if (Problems.getName().equals(key) && value instanceof JSONArray) {
+					writer.beginArray();
+					for (Object cellObject : (JSONArray) value) {
+						JSONObject cell = (JSONObject) cellObject;
+						builder.beginCell(String.valueOf(cell.get(ProblemId.getName())));
+						for (Iterator<?> cellKeys = cell.keys(); cellKeys.hasNext(); ) {
+							String cellKey = (String) cellKeys.next();
+							writer.name(new JsonWriter.Name(cellKey));
+							writer.raw(encode(cell.get(cellKey)));
+						}
+						builder.endCell();
+					}
+					writer.endArray();
+				} else {
+					writer.raw(encode(value));
+				}
+				builder.endField();
+			}
+			builder.endRow();
+		}
+		writer.endArray();
+		return builder.build();
+	}
+
+	private static byte[] encode(Object value) {
+		return JSONUtils.valueToString(value).getBytes(StandardCharsets.UTF_8);
+	}
+}
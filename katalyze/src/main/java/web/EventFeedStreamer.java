@@ -3,10 +3,8 @@ package web;
 import legacyfeed.EventFeedFile;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.channels.FileChannel;
 
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
@@ -16,6 +14,7 @@ public class EventFeedStreamer implements WebHandler {
 	
 	final EventFeedFile eventDump;
 	final String path;
+	final long idleTimeoutMillis = 30000;
 	
 	public EventFeedStreamer(EventFeedFile eventDump, String path) {
 
@@ -23,6 +22,16 @@ public class EventFeedStreamer implements WebHandler {
 		this.path = path;
 	}
 
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return path;
+	}
+
 	@Override
 	public boolean matches(HttpExchange exchange) {
 		return (exchange.getRequestMethod().equalsIgnoreCase("GET")) &&
@@ -39,31 +48,23 @@ public class EventFeedStreamer implements WebHandler {
 		
 		OutputStream responseBody = exchange.getResponseBody();		
 		
-		InputStream streamFile = eventDump.getEventStream();		
-		byte[] buffer= new byte[16384];
-		Boolean eof = false;
-		Writer writer = new OutputStreamWriter(responseBody);
-		int bytesWritten = 0;
+		// Catch-up data that has left the shared ring buffer is read from the file
+		FileChannel spillover = eventDump.openSpillover();
+		long position = 0;
 		try {
-			while (!eof) {
-				int bytesRead = streamFile.read(buffer, 0, buffer.length);
-			    if (bytesRead > 0) {
-			    	responseBody.write(buffer, 0, bytesRead);
-			    	bytesWritten += bytesRead;
-			    } else {
-			    	responseBody.flush();
-			    	if (eventDump.isClosed() && bytesWritten == eventDump.getLength()) {
-			    		eof = true;
-			    	} else {
-			    		Thread.sleep(500);
-			    	}
-			    }
-				
+			while (true) {
+				position = eventDump.transferTo(position, responseBody, spillover);
+				responseBody.flush();
+				if (!eventDump.awaitData(position, idleTimeoutMillis) && eventDump.isClosed()) {
+					break;
+				}
 			}
 		}
 		catch (InterruptedException e) {
-			writer.write("Interrupted!");
-			writer.flush();
+			responseBody.flush();
+		}
+		finally {
+			spillover.close();
 		}
 		responseBody.close();
 
@@ -0,0 +1,59 @@
+package web;
+
+import model.EventImportance;
+import model.LoggableEvent;
+
+import java.util.Map;
+
+/**
+ * Server side filter for commentary streams, built from the request's query parameters:
+ * importance (name or number, matches that importance and anything more important),
+ * team and problem (ids).
+ */
+public class EventFilter {
+	public static final EventFilter All = new EventFilter(null, null, null);
+
+	final String teamId;
+	final String problemId;
+	final EventImportance leastImportant;
+
+	public EventFilter(String teamId, String problemId, EventImportance leastImportant) {
+		this.teamId = teamId;
+		this.problemId = problemId;
+		this.leastImportant = leastImportant;
+	}
+
+	public static EventFilter fromQuery(Map<String, String> query) {
+		String importance = query.get("importance");
+		return new EventFilter(query.get("team"), query.get("problem"),
+				(importance == null) ? null : parseImportance(importance));
+	}
+
+	private static EventImportance parseImportance(String value) {
+		EventImportance[] all = EventImportance.values();
+		try {
+			int ordinal = Integer.parseInt(value);
+			return all[Math.max(0, Math.min(ordinal, all.length - 1))];
+		} catch (NumberFormatException e) {
+			for (EventImportance importance : all) {
+				if (importance.name().equalsIgnoreCase(value)) {
+					return importance;
+				}
+			}
+			throw new IllegalArgumentException(String.format("'%s' is not a known importance", value));
+		}
+	}
+
+	public boolean matches(LoggableEvent event) {
+		if (leastImportant != null && event.importance.ordinal() > leastImportant.ordinal()) {
+			return false;
+		}
+		if (teamId != null && (event.team == null || !teamId.equals(event.team.getId()))) {
+			return false;
+		}
+		if (problemId != null && (event.problem == null || !problemId.equals(event.problem.getId()))) {
+			return false;
+		}
+		return true;
+	}
+}
@@ -1,9 +1,17 @@
 package web;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 public interface EventSerializer<T> {
     void write(T data, Writer output) throws IOException;
 
+    default byte[] toBytes(T data) throws IOException {
+        StringWriter output = new StringWriter();
+        write(data, output);
+        return output.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
 }
@@ -1,18 +1,66 @@
 package web;
 
+import model.EventImportance;
 import model.LoggableEvent;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EventVector {
 
-    private final ArrayList<LoggableEvent> data = new ArrayList<>();
+    private static class Entry {
+        final LoggableEvent event;
+        volatile byte[] encoded = null;
+
+        Entry(LoggableEvent event) {
+            this.event = event;
+        }
+    }
+
+    private final ArrayList<Entry> data = new ArrayList<>();
+    private final EventSerializer<LoggableEvent> serializer;
     private volatile int eventCount = 0;
 
+    // Positions of events by team, by problem and by "at least this important"
+    private final Map<String, PositionList> byTeam = new ConcurrentHashMap<>();
+    private final Map<String, PositionList> byProblem = new ConcurrentHashMap<>();
+    private final PositionList[] byImportance = new PositionList[EventImportance.values().length];
+    // Stands in for the list of a team or problem without events, so queries don't create entries
+    private static final PositionList NoPositions = new PositionList();
+
+    public EventVector() {
+        this(new LoggableEventSerializer());
+    }
+
+    public EventVector(EventSerializer<LoggableEvent> serializer) {
+        this.serializer = serializer;
+        for (int i = 0; i < byImportance.length; i++) {
+            byImportance[i] = new PositionList();
+        }
+    }
+
     public synchronized void add(LoggableEvent item) {
-        data.add(item);
+        int position = data.size();
+        data.add(new Entry(item));
+
+        if (item != null) {
+            if (item.team != null) {
+                byTeam.computeIfAbsent(item.team.getId(), x -> new PositionList()).append(position);
+            }
+            if (item.problem != null) {
+                byProblem.computeIfAbsent(item.problem.getId(), x -> new PositionList()).append(position);
+            }
+            for (int i = item.importance.ordinal(); i < byImportance.length; i++) {
+                byImportance[i].append(position);
+            }
+        }
+
+        // Position lists must be complete before the new size becomes visible
         eventCount++;
+        notifyAll();
     }
 
     public int size() {
@@ -20,7 +68,143 @@ public class EventVector {
     }
 
     public LoggableEvent get(int index) {
-        return data.get(index);
+        return data.get(index).event;
+    }
+
+    /**
+     * The serialized form of the event at the given index. It is computed on first request and
+     * then shared by all readers, so the returned array must not be modified.
+     */
+    public byte[] getEncoded(int index) throws IOException {
+        Entry entry = data.get(index);
+        byte[] encoded = entry.encoded;
+        if (encoded == null) {
+            // Two readers may race to encode the same entry; both get identical bytes.
+            encoded = serializer.toBytes(entry.event);
+            entry.encoded = encoded;
+        }
+        return encoded;
+    }
+
+    /**
+     * Position of the first event with an id greater than the given one. Event ids are
+     * increasing, so this is a binary search.
+     */
+    public int indexAfterId(int id) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            LoggableEvent event = get(mid);
+            if (event != null && event.id <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A reader positioned after sinceId (or at the start if sinceId is null) that only returns
+     * events matching the filter.
+     */
+    public Cursor cursor(EventFilter filter, Integer sinceId) {
+        return new Cursor(filter, (sinceId == null) ? 0 : indexAfterId(sinceId));
+    }
+
+    private PositionList positionsFor(EventFilter filter) {
+        // Pick the most selective precomputed list; any remaining criteria are checked per event.
+        if (filter.teamId != null) {
+            return byTeam.getOrDefault(filter.teamId, NoPositions);
+        }
+        if (filter.problemId != null) {
+            return byProblem.getOrDefault(filter.problemId, NoPositions);
+        }
+        if (filter.leastImportant != null) {
+            return byImportance[filter.leastImportant.ordinal()];
+        }
+        return null;
+    }
+
+    public class Cursor {
+        final EventFilter filter;
+        final int startPosition;
+        PositionList positions;
+        int nextIndex;
+        int observedSize = 0;
+
+        Cursor(EventFilter filter, int startPosition) {
+            this.filter = filter;
+            this.startPosition = startPosition;
+            this.positions = positionsFor(filter);
+            this.nextIndex = (positions == null) ? startPosition : positions.lowerBound(startPosition);
+        }
+
+        /**
+         * Position of the next matching event, or -1 if there is none yet.
+         */
+        public int next() {
+            if (positions == NoPositions) {
+                // The team or problem may have had its first event since
+                PositionList resolved = positionsFor(filter);
+                if (resolved != NoPositions) {
+                    positions = resolved;
+                    nextIndex = positions.lowerBound(startPosition);
+                }
+            }
+            while (true) {
+                int available = size();
+                int position;
+                if (positions == null) {
+                    if (nextIndex >= available) {
+                        observedSize = available;
+                        return -1;
+                    }
+                    position = nextIndex++;
+                } else {
+                    if (nextIndex >= positions.size()) {
+                        observedSize = available;
+                        return -1;
+                    }
+                    position = positions.get(nextIndex++);
+                }
+
+                LoggableEvent event = get(position);
+                if (event == null || filter.matches(event)) {
+                    return position;
+                }
+            }
+        }
+
+        /**
+         * Blocks until more events have been added since next() last returned -1.
+         */
+        public boolean await(long timeoutMillis) throws InterruptedException {
+            return awaitSize(observedSize + 1, timeoutMillis);
+        }
+    }
+
+    /**
+     * Blocks until the vector holds at least minSize events, or until the timeout expires.
+     * Returns true if the events are available.
+     */
+    public boolean awaitSize(int minSize, long timeoutMillis) throws InterruptedException {
+        if (eventCount >= minSize) {
+            return true;
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (this) {
+            while (eventCount < minSize) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+        }
+        return true;
     }
 
     public Iterator<LoggableEvent> iterator() {
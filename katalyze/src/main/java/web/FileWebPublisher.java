@@ -1,14 +1,45 @@
 package web;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
-public class FileWebPublisher implements Publisher {
+import model.LifeCycleAware;
+
+/**
+ * Publishes documents as files under a base directory. Writes happen on a background thread
+ * that only keeps the latest pending version of each URL, and every file is written to a
+ * temporary file first and renamed into place, so readers never see a half-written document.
+ */
+public class FileWebPublisher implements Publisher, LifeCycleAware {
 	
 	static final Logger logger = Logger.getLogger(FileWebPublisher.class);
+	static final int statisticsInterval = 500;
 	
 	String basePath;
+
+	final Map<String, WebDocument> pending = new LinkedHashMap<String, WebDocument>();
+	Thread writer = null;
+	boolean stopping = false;
+	boolean writing = false;
+
+	long publishCount = 0;
+	long coalescedCount = 0;
+	long writeCount = 0;
+	long failedCount = 0;
+	long totalWriteNanos = 0;
+	long maxWriteNanos = 0;
 	
 	public FileWebPublisher(String basePath) throws FileNotFoundException {
 		this.basePath = basePath;
@@ -38,33 +69,144 @@ public class FileWebPublisher implements Publisher {
 	}
 
 	@Override
-	public void publish(String url, WebDocument doc) {
-		
+	public synchronized void publish(String url, WebDocument doc) {
+		publishCount++;
+		if (pending.remove(url) != null) {
+			// The version that was waiting is superseded before it was ever written
+			coalescedCount++;
+		}
+		pending.put(url, doc);
+
+		if (writer == null && !stopping) {
+			writer = new Thread(this::writePending, "file-publisher");
+			writer.setDaemon(true);
+			writer.start();
+		}
+		notifyAll();
+	}
+
+	private void writePending() {
+		while (true) {
+			List<Map.Entry<String, WebDocument>> batch;
+			synchronized (this) {
+				while (pending.isEmpty() && !stopping) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (pending.isEmpty()) {
+					return;
+				}
+				batch = new ArrayList<Map.Entry<String, WebDocument>>(pending.entrySet());
+				pending.clear();
+				writing = true;
+			}
+
+			for (Map.Entry<String, WebDocument> entry : batch) {
+				write(entry.getKey(), entry.getValue());
+			}
+
+			synchronized (this) {
+				writing = false;
+				notifyAll();
+			}
+		}
+	}
+
+	private void write(String url, WebDocument doc) {
 		String targetFileName = pathForDocument(url);
-		
-		String logString = String.format("publishing %s", targetFileName); 
-		logger.debug(logString);
-		
+		logger.debug(String.format("publishing %s", targetFileName));
+
 		File target = new File(targetFileName);
-		
 		ensureParentDirectoryExists(target);
-		
-		FileOutputStream targetFile = null;
+		Path targetPath = target.toPath();
+		Path temporaryPath = targetPath.resolveSibling("." + target.getName() + ".tmp");
+
+		long startNanos = System.nanoTime();
+		boolean written = false;
 		try {
-			targetFile = new FileOutputStream(target);
-			doc.writeContents(targetFile);
+			try (FileChannel channel = FileChannel.open(temporaryPath,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+				doc.writeContents(out);
+				out.flush();
+			}
+			try {
+				Files.move(temporaryPath, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+			written = true;
 		} catch (IOException e) {
 			logger.error(String.format("Unable to publish document to %s. Reason: %s:", targetFileName, e));
-		}
-
-		if (targetFile != null) {
 			try {
-				targetFile.close();
-			} catch (IOException e) {
-				logger.error(String.format("Error closing file %s: %s",  targetFileName, e));
+				Files.deleteIfExists(temporaryPath);
+			} catch (IOException cleanupError) {
+				logger.debug(String.format("Unable to remove %s: %s", temporaryPath, cleanupError));
 			}
 		}
-		
+		recordWrite(System.nanoTime() - startNanos, written);
+	}
+
+	private synchronized void recordWrite(long nanos, boolean written) {
+		if (!written) {
+			failedCount++;
+			return;
+		}
+		writeCount++;
+		totalWriteNanos += nanos;
+		maxWriteNanos = Math.max(maxWriteNanos, nanos);
+		if (writeCount % statisticsInterval == 0) {
+			logger.info(getStatistics());
+		}
+	}
+
+	/**
+	 * Waits until everything published so far has been written.
+	 */
+	public synchronized void flush() throws InterruptedException {
+		while ((!pending.isEmpty() || writing) && writer != null && writer.isAlive()) {
+			wait(1000);
+		}
+	}
+
+	/**
+	 * Fraction of publications that were superseded before being written.
+	 */
+	public synchronized double getCoalescingRatio() {
+		return (publishCount == 0) ? 0 : (double) coalescedCount / publishCount;
+	}
+
+	public synchronized double getAverageWriteMillis() {
+		return (writeCount == 0) ? 0 : totalWriteNanos / 1e6 / writeCount;
+	}
+
+	public synchronized String getStatistics() {
+		return String.format("File publisher: %d published, %d written, %d coalesced (%.1f%%), %d failed, write latency avg %.2f ms, max %.2f ms",
+				publishCount, writeCount, coalescedCount, 100 * getCoalescingRatio(), failedCount,
+				getAverageWriteMillis(), maxWriteNanos / 1e6);
+	}
+
+	@Override
+	public void start() {
+		// The writer is started by the first publication
+	}
+
+	@Override
+	public void stop() throws InterruptedException {
+		Thread stoppingWriter;
+		synchronized (this) {
+			stopping = true;
+			notifyAll();
+			stoppingWriter = writer;
+		}
+		// Pending documents are still written before the writer ends
+		if (stoppingWriter != null) {
+			stoppingWriter.join();
+		}
+		logger.info(getStatistics());
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A JSON array assembled from elements that were serialized once, laid out the way
+ * json-lib's JSONArray.toString(2) lays them out. Elements are kept in fixed-size pages
+ * that are shared between documents, so publishing a new version only copies page references.
+ * 
+ * Elements are expected as JSONObject.toString(2, 2); the first element of every page also
+ * in the JSONObject.toString(2) form json-lib uses when an array has a single element.
+ */
+public class JsonArrayDocument implements WebDocument {
+	static final byte[] empty = "[]".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] open = "[\n  ".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] separator = ",\n  ".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] close = "\n]".getBytes(StandardCharsets.US_ASCII);
+
+	final String contentType;
+	final byte[] prefix;
+	final List<byte[][]> pages;
+	final int count;
+	final byte[] singleElement;
+	final byte[] suffix;
+	final byte[] fingerprint;
+	final long contentLength;
+
+	/**
+	 * @param pages element pages; only the first count elements are written
+	 * @param singleElement the first element in single-element form, used when count is 1
+	 * @param fingerprint identifies this version of the contents, or null to have them hashed
+	 */
+	public JsonArrayDocument(String contentType, byte[] prefix, List<byte[][]> pages, int count, byte[] singleElement, byte[] suffix, byte[] fingerprint) {
+		this.contentType = contentType;
+		this.prefix = prefix;
+		this.pages = pages;
+		this.count = count;
+		this.singleElement = singleElement;
+		this.suffix = suffix;
+		this.fingerprint = fingerprint;
+
+		long length = prefix.length + suffix.length;
+		if (count == 0) {
+			length += empty.length;
+		} else if (count == 1) {
+			length += 2 + singleElement.length;
+		} else {
+			length += open.length + close.length + (long) (count - 1) * separator.length;
+			int remaining = count;
+			for (byte[][] page : pages) {
+				for (int i = 0; i < page.length && remaining > 0; i++, remaining--) {
+					length += page[i].length;
+				}
+			}
+		}
+		this.contentLength = length;
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public void writeContents(OutputStream target) throws IOException {
+		target.write(prefix);
+		if (count == 0) {
+			target.write(empty);
+		} else if (count == 1) {
+			target.write('[');
+			target.write(singleElement);
+			target.write(']');
+		} else {
+			target.write(open);
+			int written = 0;
+			for (byte[][] page : pages) {
+				for (int i = 0; i < page.length && written < count; i++, written++) {
+					if (written > 0) {
+						target.write(separator);
+					}
+					target.write(page[i]);
+				}
+			}
+			target.write(close);
+		}
+		target.write(suffix);
+	}
+
+	@Override
+	public boolean isGzipCompressed() {
+		return false;
+	}
+
+	@Override
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	@Override
+	public byte[] getFingerprint() {
+		return fingerprint;
+	}
+}
@@ -3,28 +3,34 @@ package web;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.util.Map;
 
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
-import model.LoggableEvent;
 import model.PublishableEventList;
 
 @SuppressWarnings("restriction")
-public class JsonEventStreamer<T> implements WebHandler {
+public class JsonEventStreamer implements WebHandler {
 
     final PublishableEventList entries;
     final String path;
-    final EventSerializer<LoggableEvent> serializer;
+    final long idleTimeoutMillis = 30000;
 
-    public JsonEventStreamer(PublishableEventList entries, EventSerializer<LoggableEvent> serializer, String path) {
+    public JsonEventStreamer(PublishableEventList entries, String path) {
 
         this.entries = entries;
         this.path = path;
-        this.serializer = serializer;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return path;
     }
 
     @Override
@@ -35,6 +41,22 @@ public class JsonEventStreamer<T> implements WebHandler {
 
     @Override
     public void handle(HttpExchange exchange) throws IOException{
+        Map<String, String> query = QueryString.parse(exchange.getRequestURI());
+        Integer sinceId;
+        EventFilter filter;
+        try {
+            String sinceParameter = query.get("since_id");
+            sinceId = (sinceParameter == null) ? null : Integer.valueOf(sinceParameter);
+            filter = EventFilter.fromQuery(query);
+        } catch (IllegalArgumentException e) {
+            byte[] message = String.format("Invalid query: %s\n", e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain");
+            exchange.sendResponseHeaders(400, message.length);
+            exchange.getResponseBody().write(message);
+            exchange.getResponseBody().close();
+            return;
+        }
+
         Headers responseHeaders = exchange.getResponseHeaders();
         responseHeaders.set("Content-Type", "application/x-ndjson; charset=utf-8");
         responseHeaders.set("Access-Control-Allow-Origin", "*");
@@ -42,29 +64,29 @@ public class JsonEventStreamer<T> implements WebHandler {
         exchange.sendResponseHeaders(200, 0);
 
         OutputStream responseBody = exchange.getResponseBody();
-        Writer writer = new OutputStreamWriter(responseBody, StandardCharsets.UTF_8);
 
-        Iterator<LoggableEvent> iterator = entries.iterator();
+        EventVector events = entries.getEvents();
+        EventVector.Cursor cursor = events.cursor(filter, sinceId);
         boolean eof = false;
 
         try {
             while (!eof) {
-                if (iterator.hasNext()) {
-                    LoggableEvent entry = iterator.next();
-
-                    if (entry == null) {
+                int position = cursor.next();
+                if (position >= 0) {
+                    if (events.get(position) == null) {
                         eof = true;
                     } else {
-                        serializer.write(entry, writer);
+                        // Events are serialized once and the bytes shared by all subscribers
+                        responseBody.write(events.getEncoded(position));
                     }
                 } else {
-                    writer.flush();
-                    Thread.sleep(500);
+                    responseBody.flush();
+                    cursor.await(idleTimeoutMillis);
                 }
             }
         }
         catch (InterruptedException e) {
-            writer.flush();
+            responseBody.flush();
         }
         responseBody.close();
     }
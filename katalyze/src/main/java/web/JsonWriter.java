@@ -0,0 +1,342 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import net.sf.json.JSONArray;
+import net.sf.json.util.JSONUtils;
+
+/**
+ * Writes compact JSON as UTF-8 straight into a growable byte buffer that can be reused
+ * between documents. The output matches what json-lib's toString() produces for the same
+ * structure, so documents can move to this writer without clients noticing.
+ * 
+ * Field names are encoded once up front as {@link Name}s.
+ */
+public class JsonWriter {
+	static final byte[] hex = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] trueBytes = "true".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] falseBytes = "false".getBytes(StandardCharsets.US_ASCII);
+	static final byte[] nullBytes = "null".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * A field name encoded as "name": ready to be copied into the output.
+	 */
+	public static final class Name {
+		final String name;
+		final byte[] encoded;
+
+		public Name(String name) {
+			this.name = name;
+			JsonWriter writer = new JsonWriter(name.length() + 8);
+			writer.writeString(name);
+			writer.writeByte(':');
+			this.encoded = writer.toByteArray();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Name && ((Name) other).name.equals(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+	}
+
+	byte[] buffer;
+	int size = 0;
+	/* For each open object or array, whether anything has been written into it yet */
+	boolean[] hasElements = new boolean[16];
+	int depth = 0;
+	boolean afterName = false;
+
+	public JsonWriter() {
+		this(8192);
+	}
+
+	public JsonWriter(int initialCapacity) {
+		this.buffer = new byte[Math.max(16, initialCapacity)];
+	}
+
+	/**
+	 * Discards the contents but keeps the buffer for the next document.
+	 */
+	public JsonWriter reset() {
+		size = 0;
+		depth = 0;
+		afterName = false;
+		return this;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	public byte[] copyOfRange(int from, int to) {
+		return Arrays.copyOfRange(buffer, from, to);
+	}
+
+	public void writeTo(OutputStream target) throws IOException {
+		target.write(buffer, 0, size);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+		}
+	}
+
+	private void writeByte(int b) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) b;
+	}
+
+	private void writeBytes(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, size, length);
+		size += length;
+	}
+
+	/**
+	 * Separates this element from the previous one in the enclosing container.
+	 */
+	private void beforeValue() {
+		if (afterName) {
+			afterName = false;
+		} else if (depth > 0) {
+			if (hasElements[depth - 1]) {
+				writeByte(',');
+			}
+			hasElements[depth - 1] = true;
+		}
+	}
+
+	private JsonWriter open(int bracket) {
+		beforeValue();
+		writeByte(bracket);
+		if (depth == hasElements.length) {
+			hasElements = Arrays.copyOf(hasElements, depth * 2);
+		}
+		hasElements[depth++] = false;
+		return this;
+	}
+
+	private JsonWriter close(int bracket) {
+		depth--;
+		writeByte(bracket);
+		return this;
+	}
+
+	public JsonWriter beginObject() {
+		return open('{');
+	}
+
+	public JsonWriter endObject() {
+		return close('}');
+	}
+
+	public JsonWriter beginArray() {
+		return open('[');
+	}
+
+	public JsonWriter endArray() {
+		return close(']');
+	}
+
+	public JsonWriter name(Name name) {
+		beforeValue();
+		writeBytes(name.encoded, 0, name.encoded.length);
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(long value) {
+		beforeValue();
+		if (value == Long.MIN_VALUE) {
+			byte[] digits = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+			writeBytes(digits, 0, digits.length);
+			return this;
+		}
+		if (value < 0) {
+			writeByte('-');
+			value = -value;
+		}
+		ensureCapacity(20);
+		int start = size;
+		do {
+			buffer[size++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+		for (int i = start, j = size - 1; i < j; i++, j--) {
+			byte swap = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = swap;
+		}
+		return this;
+	}
+
+	public JsonWriter value(boolean value) {
+		beforeValue();
+		byte[] literal = value ? trueBytes : falseBytes;
+		writeBytes(literal, 0, literal.length);
+		return this;
+	}
+
+	public JsonWriter nullValue() {
+		beforeValue();
+		writeBytes(nullBytes, 0, nullBytes.length);
+		return this;
+	}
+
+	/**
+	 * Writes a string the way json-lib stores it: strings that look like JSON
+	 * ("null", "[...]" or "{...}") are written as the JSON they contain.
+	 */
+	public JsonWriter value(String value) {
+		if (value == null) {
+			return nullValue();
+		}
+		if (JSONUtils.mayBeJSON(value)) {
+			String asArray = JSONArray.fromObject(new Object[] { value }).toString();
+			return raw(asArray.substring(1, asArray.length() - 1).getBytes(StandardCharsets.UTF_8));
+		}
+		beforeValue();
+		writeString(value);
+		return this;
+	}
+
+	/**
+	 * Copies an already encoded JSON value.
+	 */
+	public JsonWriter raw(byte[] encoded) {
+		return raw(encoded, 0, encoded.length);
+	}
+
+	public JsonWriter raw(byte[] encoded, int offset, int length) {
+		beforeValue();
+		writeBytes(encoded, offset, length);
+		return this;
+	}
+
+	public JsonWriter field(Name name, long value) {
+		return name(name).value(value);
+	}
+
+	public JsonWriter field(Name name, boolean value) {
+		return name(name).value(value);
+	}
+
+	/**
+	 * Writes a string field; like json-lib, a null value leaves the field out.
+	 */
+	public JsonWriter field(Name name, String value) {
+		if (value == null) {
+			return this;
+		}
+		return name(name).value(value);
+	}
+
+	/**
+	 * Writes an array of strings; like json-lib, a null array leaves the field out.
+	 */
+	public JsonWriter field(Name name, String[] values) {
+		if (values == null) {
+			return this;
+		}
+		name(name).beginArray();
+		for (String value : values) {
+			value(value);
+		}
+		return endArray();
+	}
+
+	private void writeString(String value) {
+		int length = value.length();
+		ensureCapacity(length + 2);
+		buffer[size++] = '"';
+		char previous = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				switch (c) {
+				case '"':
+				case '\\':
+					writeByte('\\');
+					writeByte(c);
+					break;
+				case '/':
+					if (previous == '<') {
+						writeByte('\\');
+					}
+					writeByte(c);
+					break;
+				case '\b':
+					writeByte('\\');
+					writeByte('b');
+					break;
+				case '\t':
+					writeByte('\\');
+					writeByte('t');
+					break;
+				case '\n':
+					writeByte('\\');
+					writeByte('n');
+					break;
+				case '\f':
+					writeByte('\\');
+					writeByte('f');
+					break;
+				case '\r':
+					writeByte('\\');
+					writeByte('r');
+					break;
+				default:
+					if (c < ' ') {
+						ensureCapacity(6);
+						buffer[size++] = '\\';
+						buffer[size++] = 'u';
+						buffer[size++] = '0';
+						buffer[size++] = '0';
+						buffer[size++] = hex[c >> 4];
+						buffer[size++] = hex[c & 0xf];
+					} else {
+						writeByte(c);
+					}
+				}
+			} else if (c < 0x800) {
+				ensureCapacity(2);
+				buffer[size++] = (byte) (0xc0 | (c >> 6));
+				buffer[size++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				ensureCapacity(4);
+				buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				// Unpaired surrogates are replaced like String.getBytes does
+				writeByte('?');
+			} else {
+				ensureCapacity(3);
+				buffer[size++] = (byte) (0xe0 | (c >> 12));
+				buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[size++] = (byte) (0x80 | (c & 0x3f));
+			}
+			previous = c;
+		}
+		writeByte('"');
+	}
+}
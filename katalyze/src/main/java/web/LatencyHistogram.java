@@ -0,0 +1,60 @@
+package web;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets, from 64 microseconds up to about 33 seconds.
+ */
+public class LatencyHistogram {
+	static final int MinExponent = 6;
+	static final int BoundedBuckets = 20;
+
+	final AtomicLongArray counts = new AtomicLongArray(BoundedBuckets + 1);
+	final AtomicLong sumMicros = new AtomicLong();
+
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts.incrementAndGet(bucketOf(micros));
+		sumMicros.addAndGet(micros);
+	}
+
+	static int bucketOf(long micros) {
+		if (micros <= (1L << MinExponent)) {
+			return 0;
+		}
+		int exponent = 64 - Long.numberOfLeadingZeros(micros - 1);
+		return Math.min(exponent - MinExponent, BoundedBuckets);
+	}
+
+	public int getBucketCount() {
+		return BoundedBuckets + 1;
+	}
+
+	/**
+	 * Inclusive upper bound of a bucket in seconds, formatted as a Prometheus "le" label.
+	 */
+	public String getUpperBound(int bucket) {
+		if (bucket >= BoundedBuckets) {
+			return "+Inf";
+		}
+		return new BigDecimal(1L << (bucket + MinExponent)).movePointLeft(6).toPlainString();
+	}
+
+	public long getCount(int bucket) {
+		return counts.get(bucket);
+	}
+
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	public double getSumSeconds() {
+		return sumMicros.get() / 1e6;
+	}
+}
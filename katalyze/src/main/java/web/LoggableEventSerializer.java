@@ -12,7 +12,7 @@ public class LoggableEventSerializer implements EventSerializer<LoggableEvent> {
     TimeConverter timeConverter = new TimeConverter();
 
 
-    private JSONObject getJsonObject(LoggableEvent event) {
+    JSONObject getJsonObject(LoggableEvent event) {
         JSONObject innerInfo = new JSONObject()
                 .element("id", Integer.toString(event.id));
 
@@ -34,11 +34,17 @@ public class LoggableEventSerializer implements EventSerializer<LoggableEvent> {
         }
         innerInfo = innerInfo.element("submission_ids", submission_ids);
 
+		String contestTime;
+		synchronized (timeConverter) {
+			// TimeConverter uses SimpleDateFormat, which isn't thread safe
+			contestTime = timeConverter.toContestTime(event.contestTimeMillis);
+		}
+
 		innerInfo = innerInfo
 				.element("id", Integer.toString(event.id))
                 .element("priority", event.importance.ordinal())
                 .element("message", event.message)
-                .element("contest_time", timeConverter.toContestTime(event.contestTimeMillis))
+                .element("contest_time", contestTime)
                 .element("time", event.timestamp.toString());
 
 
@@ -0,0 +1,137 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Serves the serving core's per-endpoint counters, gauges and histograms in the Prometheus
+ * text exposition format.
+ */
+@SuppressWarnings("restriction")
+public class MetricsHandler implements WebHandler {
+	static final String ContentType = "text/plain; version=0.0.4; charset=utf-8";
+	static final String[] StatusClasses = {null, "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+	final ServingCore core;
+	final String path;
+
+	public MetricsHandler(ServingCore core, String path) {
+		this.core = core;
+		this.path = path;
+	}
+
+	@Override
+	public String getName() {
+		return path;
+	}
+
+	@Override
+	public boolean matches(HttpExchange exchange) {
+		return exchange.getRequestMethod().equalsIgnoreCase("GET") &&
+				exchange.getRequestURI().getPath().equalsIgnoreCase(path);
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		byte[] body = render().getBytes(StandardCharsets.UTF_8);
+		Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Content-Type", ContentType);
+		responseHeaders.set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(200, body.length);
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(body);
+		responseBody.close();
+	}
+
+	public String render() {
+		Collection<ServingCore.Endpoint> endpoints = core.getEndpoints().values();
+		StringBuilder out = new StringBuilder();
+
+		header(out, "katalyzer_http_requests_total", "counter", "Requests completed per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			sample(out, "katalyzer_http_requests_total", e, null, e.getServed());
+		}
+		header(out, "katalyzer_http_responses_total", "counter", "Responses per route and status class.");
+		for (ServingCore.Endpoint e : endpoints) {
+			for (int statusClass = 1; statusClass < StatusClasses.length; statusClass++) {
+				long count = e.getResponses(statusClass);
+				if (count > 0) {
+					sample(out, "katalyzer_http_responses_total", e, "code=\"" + StatusClasses[statusClass] + "\"", count);
+				}
+			}
+		}
+		header(out, "katalyzer_http_rejected_total", "counter", "Requests refused with 503 per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			sample(out, "katalyzer_http_rejected_total", e, null, e.getRejected());
+		}
+		header(out, "katalyzer_http_response_bytes_total", "counter", "Response body bytes sent per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			sample(out, "katalyzer_http_response_bytes_total", e, null, e.getBytesSent());
+		}
+		header(out, "katalyzer_http_active_requests", "gauge", "Requests in progress per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			if (!e.isStreaming()) {
+				sample(out, "katalyzer_http_active_requests", e, null, e.getActive());
+			}
+		}
+		header(out, "katalyzer_http_connected_streams", "gauge", "Clients connected to a streaming route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			if (e.isStreaming()) {
+				sample(out, "katalyzer_http_connected_streams", e, null, e.getActive());
+			}
+		}
+		header(out, "katalyzer_http_peak_concurrency", "gauge", "Highest number of concurrent requests seen per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			sample(out, "katalyzer_http_peak_concurrency", e, null, e.getPeak());
+		}
+
+		header(out, "katalyzer_http_request_duration_seconds", "histogram", "Duration of short requests per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			if (!e.isStreaming()) {
+				histogram(out, "katalyzer_http_request_duration_seconds", e, e.getDuration());
+			}
+		}
+		header(out, "katalyzer_http_time_to_first_byte_seconds", "histogram", "Time until the first response body byte per route.");
+		for (ServingCore.Endpoint e : endpoints) {
+			histogram(out, "katalyzer_http_time_to_first_byte_seconds", e, e.getTimeToFirstByte());
+		}
+
+		header(out, "katalyzer_http_queued_requests", "gauge", "Short requests waiting for a worker thread.");
+		out.append("katalyzer_http_queued_requests ").append(core.getQueuedRequests()).append('\n');
+		header(out, "katalyzer_http_open_streams", "gauge", "Streaming requests open on all routes.");
+		out.append("katalyzer_http_open_streams ").append(core.getOpenStreams()).append('\n');
+		return out.toString();
+	}
+
+	private static void header(StringBuilder out, String metric, String type, String help) {
+		out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+	}
+
+	private static void sample(StringBuilder out, String metric, ServingCore.Endpoint endpoint, String extraLabel, Object value) {
+		out.append(metric).append("{route=\"").append(escape(endpoint.getName())).append('"');
+		if (extraLabel != null) {
+			out.append(',').append(extraLabel);
+		}
+		out.append("} ").append(value).append('\n');
+	}
+
+	private static void histogram(StringBuilder out, String metric, ServingCore.Endpoint endpoint, LatencyHistogram histogram) {
+		long cumulative = 0;
+		for (int bucket = 0; bucket < histogram.getBucketCount(); bucket++) {
+			cumulative += histogram.getCount(bucket);
+			sample(out, metric + "_bucket", endpoint, "le=\"" + histogram.getUpperBound(bucket) + "\"", cumulative);
+		}
+		sample(out, metric + "_sum", endpoint, null, histogram.getSumSeconds());
+		sample(out, metric + "_count", endpoint, null, cumulative);
+	}
+
+	static String escape(String label) {
+		return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -0,0 +1,49 @@
+package web;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of event positions. Appends must be serialized by the caller; reads are
+ * safe from any thread.
+ */
+class PositionList {
+	private volatile int[] positions = new int[16];
+	private volatile int size = 0;
+
+	void append(int position) {
+		int[] current = positions;
+		if (size == current.length) {
+			current = Arrays.copyOf(current, current.length * 2);
+			positions = current;
+		}
+		current[size] = position;
+		size = size + 1;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int get(int index) {
+		return positions[index];
+	}
+
+	/**
+	 * Index of the first entry that is at least the given position.
+	 */
+	int lowerBound(int position) {
+		int count = size;
+		int[] current = positions;
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (current[mid] < position) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,179 @@
+package web;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A document as stored by the WebPublisher, with the validators used for conditional requests.
+ * The ETag and digest are null for documents whose contents are not fixed.
+ * 
+ * Fixed documents can be served in several content encodings. The encoded variants are built
+ * on first request and kept for as long as this version of the document is published.
+ */
+public class PublishedDocument {
+	public static final String Identity = "identity";
+	static final String[] preferredEncodings = { CompressedWebDocument.Gzip, CompressedWebDocument.Deflate };
+
+	final WebDocument document;
+	final byte[] digest;
+	final String etag;
+	final long lastModifiedMillis;
+	final CompressionSettings compression;
+	final ConcurrentHashMap<String, WebDocument> variants = new ConcurrentHashMap<String, WebDocument>();
+
+	public PublishedDocument(WebDocument document, byte[] digest, long lastModifiedMillis) {
+		this(document, digest, lastModifiedMillis, null);
+	}
+
+	public PublishedDocument(WebDocument document, byte[] digest, long lastModifiedMillis, CompressionSettings compression) {
+		this.document = document;
+		this.digest = digest;
+		this.etag = (digest == null) ? null : toEtag(digest);
+		this.lastModifiedMillis = lastModifiedMillis;
+		this.compression = compression;
+	}
+
+	private static String toEtag(byte[] digest) {
+		StringBuilder target = new StringBuilder("\"");
+		for (int i = 0; i < 12 && i < digest.length; i++) {
+			target.append(String.format("%02x", digest[i]));
+		}
+		return target.append('"').toString();
+	}
+
+	public WebDocument getDocument() {
+		return document;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+
+	/**
+	 * The ETag of one encoded variant; each encoding has its own since the bytes differ.
+	 */
+	public String getEtag(WebDocument variant) {
+		String encoding = variant.getContentEncoding();
+		if (etag == null || encoding == null || variant == document) {
+			return etag;
+		}
+		return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	public String getLastModified() {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+				Instant.ofEpochMilli(lastModifiedMillis).atOffset(ZoneOffset.UTC));
+	}
+
+	/**
+	 * True if the document can be served in more than one encoding, so caches should vary on Accept-Encoding.
+	 */
+	public boolean hasVariants() {
+		return compression != null && document.getContentEncoding() == null && document.getContentLength() >= 0;
+	}
+
+	/**
+	 * Picks the variant to send for an Accept-Encoding request header. Gzip is preferred over deflate,
+	 * which is preferred over the unencoded document, unless the client weighs them differently.
+	 */
+	public WebDocument negotiate(String acceptEncoding) {
+		if (!hasVariants() || acceptEncoding == null) {
+			return document;
+		}
+
+		String best = null;
+		double bestQuality = 0;
+		for (String encoding : preferredEncodings) {
+			double quality = quality(acceptEncoding, encoding);
+			if (quality > bestQuality) {
+				best = encoding;
+				bestQuality = quality;
+			}
+		}
+		double identityQuality = quality(acceptEncoding, Identity);
+		if (best == null || identityQuality > bestQuality) {
+			return document;
+		}
+		return variant(best);
+	}
+
+	/**
+	 * The document in the given content encoding, building it if this is the first request for it.
+	 */
+	public WebDocument variant(String encoding) {
+		if (encoding == null || Identity.equals(encoding) || !hasVariants()) {
+			return document;
+		}
+		return variants.computeIfAbsent(encoding, e ->
+				CompressedWebDocument.Compress(document, e, compression.levelFor(document.getContentType())));
+	}
+
+	/**
+	 * The q-value an Accept-Encoding header gives an encoding. Identity is acceptable
+	 * unless excluded explicitly or through "*;q=0".
+	 */
+	static double quality(String acceptEncoding, String encoding) {
+		Double explicit = null;
+		Double wildcard = null;
+		for (String element : acceptEncoding.split(",")) {
+			String[] parts = element.trim().split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+			double q = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						q = Double.parseDouble(parameter.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if (coding.equals(encoding) || (coding.equals("x-gzip") && encoding.equals(CompressedWebDocument.Gzip))) {
+				explicit = q;
+			} else if (coding.equals("*")) {
+				wildcard = q;
+			}
+		}
+		if (explicit != null) {
+			return explicit;
+		}
+		if (wildcard != null) {
+			return wildcard;
+		}
+		return Identity.equals(encoding) ? 0.001 : 0;
+	}
+
+	/**
+	 * True if an If-None-Match header value refers to this version of the document.
+	 */
+	public boolean matches(String ifNoneMatch) {
+		return matches(ifNoneMatch, etag);
+	}
+
+	/**
+	 * True if an If-None-Match header value refers to this version of the given variant.
+	 */
+	public boolean matches(String ifNoneMatch, WebDocument variant) {
+		return matches(ifNoneMatch, getEtag(variant));
+	}
+
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (etag == null || ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String trimmed = candidate.trim();
+			if (trimmed.startsWith("W/")) {
+				trimmed = trimmed.substring(2);
+			}
+			if (trimmed.equals(etag) || trimmed.equals("*")) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
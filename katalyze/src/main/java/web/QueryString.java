@@ -0,0 +1,40 @@
+package web;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryString {
+
+	/**
+	 * Decodes the query part of a request URI. For repeated parameters the last value wins.
+	 */
+	public static Map<String, String> parse(URI uri) {
+		Map<String, String> target = new HashMap<String, String>();
+		String query = uri.getRawQuery();
+		if (query == null || query.isEmpty()) {
+			return target;
+		}
+
+		for (String pair : query.split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int separator = pair.indexOf('=');
+			String key = (separator < 0) ? pair : pair.substring(0, separator);
+			String value = (separator < 0) ? "" : pair.substring(separator + 1);
+			target.put(decode(key), decode(value));
+		}
+		return target;
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
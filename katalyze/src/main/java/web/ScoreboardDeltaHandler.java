@@ -0,0 +1,62 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Answers scoreboard polls that name the version they already have, e.g. /scoreboard?since=42.
+ * Plain requests for the path are left to the published document.
+ */
+@SuppressWarnings("restriction")
+public class ScoreboardDeltaHandler implements WebHandler {
+	final ScoreboardHistory history;
+	final String path;
+
+	public ScoreboardDeltaHandler(ScoreboardHistory history, String path) {
+		this.history = history;
+		this.path = path;
+	}
+
+	@Override
+	public String getName() {
+		return path + "?since";
+	}
+
+	@Override
+	public boolean matches(HttpExchange exchange) {
+		return exchange.getRequestMethod().equalsIgnoreCase("GET") &&
+				exchange.getRequestURI().getPath().equalsIgnoreCase(path) &&
+				QueryString.parse(exchange.getRequestURI()).containsKey("since");
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Access-Control-Allow-Origin", "*");
+
+		long since;
+		try {
+			since = Long.parseLong(QueryString.parse(exchange.getRequestURI()).get("since"));
+		} catch (NumberFormatException e) {
+			byte[] message = String.format("Invalid query: %s\n", e.getMessage()).getBytes(StandardCharsets.UTF_8);
+			responseHeaders.set("Content-Type", "text/plain");
+			exchange.sendResponseHeaders(400, message.length);
+			exchange.getResponseBody().write(message);
+			exchange.getResponseBody().close();
+			return;
+		}
+
+		byte[] contents = history.since(since).toBytes();
+		responseHeaders.set("Content-Type", "application/json; charset=utf-8");
+		responseHeaders.set("Cache-Control", "no-cache");
+		exchange.sendResponseHeaders(200, contents.length);
+
+		OutputStream responseBody = exchange.getResponseBody();
+		responseBody.write(contents);
+		responseBody.close();
+	}
+}
@@ -0,0 +1,102 @@
+package web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Pushes scoreboard changes as Server-Sent Events. Each message carries the merged row deltas
+ * since the last version sent to that client, with the new version as event id, so a client
+ * that falls behind receives one combined update instead of a backlog.
+ */
+@SuppressWarnings("restriction")
+public class ScoreboardEventStreamer implements WebHandler {
+	static final Logger logger = Logger.getLogger(ScoreboardEventStreamer.class);
+
+	final ScoreboardHistory history;
+	final String path;
+	final long keepAliveMillis = 15000;
+
+	public ScoreboardEventStreamer(ScoreboardHistory history, String path) {
+		this.history = history;
+		this.path = path;
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return path;
+	}
+
+	@Override
+	public boolean matches(HttpExchange exchange) {
+		return exchange.getRequestMethod().equalsIgnoreCase("GET") &&
+				exchange.getRequestURI().getPath().equalsIgnoreCase(path);
+	}
+
+	private long startVersion(HttpExchange exchange) {
+		// Reconnecting browsers send the id of the last event they received
+		String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+		Map<String, String> query = QueryString.parse(exchange.getRequestURI());
+		String since = (lastEventId != null) ? lastEventId : query.get("since");
+		if (since == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(since.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static void send(OutputStream target, long version, String data) throws IOException {
+		String message = String.format("id: %d\nevent: scoreboard\ndata: %s\n\n", version, data);
+		target.write(message.getBytes(StandardCharsets.UTF_8));
+		target.flush();
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Content-Type", "text/event-stream; charset=utf-8");
+		responseHeaders.set("Cache-Control", "no-cache");
+		responseHeaders.set("Access-Control-Allow-Origin", "*");
+		exchange.sendResponseHeaders(200, 0);
+
+		OutputStream responseBody = exchange.getResponseBody();
+		long sentVersion = startVersion(exchange);
+
+		history.addListener();
+		try {
+			while (true) {
+				long version = history.awaitVersionAfter(sentVersion, keepAliveMillis);
+				if (version > sentVersion) {
+					// Everything published since the last send goes out as one message
+					ScoreboardHistory.Update update = history.since(sentVersion);
+					sentVersion = update.getVersion();
+					send(responseBody, sentVersion, update.toString());
+				} else {
+					responseBody.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+					responseBody.flush();
+				}
+			}
+		} catch (IOException e) {
+			logger.debug(String.format("Scoreboard event client %s went away: %s", exchange.getRemoteAddress(), e));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			history.removeListener();
+			exchange.close();
+		}
+	}
+}
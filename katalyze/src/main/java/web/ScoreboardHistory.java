@@ -0,0 +1,295 @@
+package web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.json.JSONArray;
+
+/**
+ * Versioned history of the published scoreboard. Every publication that changes the table gets
+ * the next version number, and the row-level differences of the most recent versions are kept
+ * so pollers can fetch only what changed since the version they have.
+ * 
+ * A row delta always contains "team_id" plus the row fields that changed; its "problems" array
+ * only holds the problem cells that changed, identified by "problem_id".
+ */
+public class ScoreboardHistory {
+	static final JsonWriter.Name versionName = new JsonWriter.Name("version");
+	static final JsonWriter.Name fullName = new JsonWriter.Name("full");
+	static final JsonWriter.Name rowsName = new JsonWriter.Name("rows");
+	static final byte[] nullBytes = "null".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * The changed fields of one row, in row order, as encoded JSON values. The problems
+	 * field maps to null; its changed cells are kept by problem id.
+	 */
+	static class RowDelta {
+		final LinkedHashMap<JsonWriter.Name, byte[]> fields = new LinkedHashMap<JsonWriter.Name, byte[]>();
+		final LinkedHashMap<String, byte[]> cells = new LinkedHashMap<String, byte[]>();
+
+		void mergeFrom(RowDelta later) {
+			fields.putAll(later.fields);
+			cells.putAll(later.cells);
+		}
+
+		void writeTo(JsonWriter writer) {
+			writer.beginObject();
+			for (Map.Entry<JsonWriter.Name, byte[]> field : fields.entrySet()) {
+				writer.name(field.getKey());
+				if (field.getValue() != null) {
+					writer.raw(field.getValue());
+				} else {
+					writer.beginArray();
+					for (byte[] cell : cells.values()) {
+						writer.raw(cell);
+					}
+					writer.endArray();
+				}
+			}
+			writer.endObject();
+		}
+	}
+
+	static class Delta {
+		final long version;
+		final Map<String, RowDelta> rows;
+
+		Delta(long version, Map<String, RowDelta> rows) {
+			this.version = version;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * The answer to a poll: either merged row deltas or the full table.
+	 */
+	public static class Update {
+		final long version;
+		final boolean full;
+		final byte[] json;
+
+		Update(long version, boolean full, byte[] json) {
+			this.version = version;
+			this.full = full;
+			this.json = json;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public boolean isFull() {
+			return full;
+		}
+
+		/**
+		 * The update as {"version", "full", "rows"}.
+		 */
+		public byte[] toBytes() {
+			return json;
+		}
+
+		@Override
+		public String toString() {
+			return new String(json, StandardCharsets.UTF_8);
+		}
+	}
+
+	final int window;
+	final Deque<Delta> deltas = new ArrayDeque<Delta>();
+	EncodedScoreboard current = EncodedScoreboard.fromJson(new JSONArray());
+	Map<String, EncodedScoreboard.Row> currentRows = new HashMap<String, EncodedScoreboard.Row>();
+	long version = 0;
+	long oldestReachableVersion = 0;
+	final AtomicInteger listeners = new AtomicInteger();
+
+	/**
+	 * @param window number of versions for which deltas are retained
+	 */
+	public ScoreboardHistory(int window) {
+		this.window = window;
+	}
+
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Waits until the version is past the given one or the timeout expires, and returns the current version.
+	 */
+	public synchronized long awaitVersionAfter(long knownVersion, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long remaining = timeoutMillis;
+		while (version <= knownVersion && remaining > 0) {
+			wait(remaining);
+			remaining = deadline - System.currentTimeMillis();
+		}
+		return version;
+	}
+
+	/**
+	 * Clients that want changes pushed register here, so publishers know whether
+	 * publishing on every standings change is worth it.
+	 */
+	public void addListener() {
+		listeners.incrementAndGet();
+	}
+
+	public void removeListener() {
+		listeners.decrementAndGet();
+	}
+
+	public boolean hasListeners() {
+		return listeners.get() > 0;
+	}
+
+	public long update(JSONArray scoreboard) {
+		return update(EncodedScoreboard.fromJson(scoreboard));
+	}
+
+	/**
+	 * Records a new scoreboard and returns its version, which stays the same if no row changed.
+	 */
+	public synchronized long update(EncodedScoreboard scoreboard) {
+		Map<String, EncodedScoreboard.Row> rows = new HashMap<String, EncodedScoreboard.Row>();
+		Map<String, RowDelta> changed = new LinkedHashMap<String, RowDelta>();
+		for (EncodedScoreboard.Row row : scoreboard.rows) {
+			rows.put(row.teamId, row);
+			RowDelta delta = diff(currentRows.get(row.teamId), row, scoreboard.bytes);
+			if (delta != null) {
+				changed.put(row.teamId, delta);
+			}
+		}
+		boolean rowsRemoved = !rows.keySet().containsAll(currentRows.keySet());
+
+		if (changed.isEmpty() && !rowsRemoved) {
+			return version;
+		}
+
+		version++;
+		currentRows = rows;
+		current = scoreboard;
+		if (rowsRemoved) {
+			// Deltas cannot express removed rows, so everyone has to start from a full snapshot
+			deltas.clear();
+			oldestReachableVersion = version;
+		} else {
+			deltas.addLast(new Delta(version, changed));
+			while (deltas.size() > window) {
+				oldestReachableVersion = deltas.removeFirst().version;
+			}
+		}
+		notifyAll();
+		return version;
+	}
+
+	/**
+	 * The changes since the given version. If the version is no longer covered
+	 * by the retained deltas the full table is returned instead.
+	 */
+	public synchronized Update since(long sinceVersion) {
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject().field(versionName, version);
+
+		if (sinceVersion < oldestReachableVersion || sinceVersion > version) {
+			writer.field(fullName, true)
+				.name(rowsName).raw(current.bytes)
+				.endObject();
+			return new Update(version, true, writer.toByteArray());
+		}
+
+		Map<String, RowDelta> merged = new LinkedHashMap<String, RowDelta>();
+		for (Delta delta : deltas) {
+			if (delta.version <= sinceVersion) {
+				continue;
+			}
+			for (Map.Entry<String, RowDelta> row : delta.rows.entrySet()) {
+				RowDelta target = merged.get(row.getKey());
+				if (target == null) {
+					target = new RowDelta();
+					merged.put(row.getKey(), target);
+				}
+				target.mergeFrom(row.getValue());
+			}
+		}
+
+		writer.field(fullName, false).name(rowsName).beginArray();
+		for (RowDelta row : merged.values()) {
+			row.writeTo(writer);
+		}
+		writer.endArray().endObject();
+		return new Update(version, false, writer.toByteArray());
+	}
+
+	private static boolean sameBytes(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+		if (aTo - aFrom != bTo - bFrom) {
+			return false;
+		}
+		for (int i = 0; i < aTo - aFrom; i++) {
+			if (a[aFrom + i] != b[bFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private RowDelta diff(EncodedScoreboard.Row before, EncodedScoreboard.Row after, byte[] afterBytes) {
+		byte[] beforeBytes = current.bytes;
+		if (before != null && sameBytes(beforeBytes, before.start, before.end, afterBytes, after.start, after.end)) {
+			return null;
+		}
+
+		RowDelta delta = new RowDelta();
+		if (before != null) {
+			int teamIdIndex = after.indexOfField(EncodedScoreboard.TeamId);
+			if (teamIdIndex >= 0) {
+				delta.fields.put(EncodedScoreboard.TeamId, field(after, teamIdIndex, afterBytes));
+			}
+		}
+
+		for (int i = 0; i < after.fieldCount; i++) {
+			JsonWriter.Name name = after.fieldNames[i];
+			int previous = (before == null) ? -1 : before.indexOfField(name);
+			if (name.equals(EncodedScoreboard.Problems)) {
+				boolean cellsChanged = false;
+				for (int c = 0; c < after.cellCount; c++) {
+					int previousCell = (previous < 0) ? -1 : before.indexOfCell(after.cellIds[c]);
+					if (previousCell < 0 || !sameBytes(beforeBytes, before.cellRanges[2 * previousCell], before.cellRanges[2 * previousCell + 1],
+							afterBytes, after.cellRanges[2 * c], after.cellRanges[2 * c + 1])) {
+						delta.cells.put(after.cellIds[c],
+								Arrays.copyOfRange(afterBytes, after.cellRanges[2 * c], after.cellRanges[2 * c + 1]));
+						cellsChanged = true;
+					}
+				}
+				if (cellsChanged) {
+					delta.fields.put(name, null);
+				}
+			} else if (previous < 0 || !sameBytes(beforeBytes, before.fieldRanges[2 * previous], before.fieldRanges[2 * previous + 1],
+					afterBytes, after.fieldRanges[2 * i], after.fieldRanges[2 * i + 1])) {
+				delta.fields.put(name, field(after, i, afterBytes));
+			}
+		}
+		if (before != null) {
+			// Fields that disappeared are sent as null, as there is no other way to clear them
+			for (int i = 0; i < before.fieldCount; i++) {
+				if (after.indexOfField(before.fieldNames[i]) < 0) {
+					delta.fields.put(before.fieldNames[i], nullBytes);
+				}
+			}
+			if (delta.fields.size() <= 1) {
+				return null;
+			}
+		}
+		return delta;
+	}
+
+	private static byte[] field(EncodedScoreboard.Row row, int index, byte[] bytes) {
+		return Arrays.copyOfRange(bytes, row.fieldRanges[2 * index], row.fieldRanges[2 * index + 1]);
+	}
+}
@@ -0,0 +1,178 @@
+package web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import net.sf.json.JSONObject;
+
+/**
+ * In-memory NDJSON event feed shared by all subscribers. Each event is stamped with a token,
+ * serialized once, and appended to a segment of fixed event count. Subscribers read runs of
+ * consecutive events straight out of the segment bytes, which are never modified after being
+ * written: a segment that has to grow is copied, and readers keep the copy they were given.
+ * <p>
+ * When the retained bytes exceed the limit, the oldest segments are dropped. Tokens carry
+ * the epoch of the feed, so that a token handed out before a restart is recognized as
+ * expired rather than silently skipping events.
+ */
+public class SegmentedEventFeed {
+	public static final int DefaultSegmentEvents = 256;
+	public static final long DefaultMaxBytes = 64L * 1024 * 1024;
+
+	static final class Segment {
+		final long firstToken;
+		byte[] bytes = new byte[8192];
+		int size = 0;
+		final int[] ends;
+		int count = 0;
+
+		Segment(long firstToken, int capacity) {
+			this.firstToken = firstToken;
+			this.ends = new int[capacity];
+		}
+	}
+
+	/**
+	 * A run of consecutive encoded events, which can be written without holding the feed's lock.
+	 */
+	public static final class Chunk {
+		public final byte[] bytes;
+		public final int offset;
+		public final int length;
+		public final long lastToken;
+
+		Chunk(byte[] bytes, int offset, int length, long lastToken) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+			this.lastToken = lastToken;
+		}
+	}
+
+	final String epoch;
+	final int segmentEvents;
+	final long maxBytes;
+	final ArrayList<Segment> segments = new ArrayList<Segment>();
+	long nextToken = 1;
+	long retainedBytes = 0;
+	boolean closed = false;
+
+	public SegmentedEventFeed() {
+		this(DefaultSegmentEvents, DefaultMaxBytes);
+	}
+
+	public SegmentedEventFeed(int segmentEvents, long maxBytes) {
+		this.epoch = Long.toString(System.currentTimeMillis(), 36);
+		this.segmentEvents = segmentEvents;
+		this.maxBytes = maxBytes;
+	}
+
+	public String formatToken(long token) {
+		return epoch + "-" + token;
+	}
+
+	/**
+	 * The sequence number of a token issued by this feed, or -1 for a token of an earlier run.
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	public long parseToken(String token) {
+		int separator = token.lastIndexOf('-');
+		long sequence;
+		try {
+			sequence = Long.parseLong(token.substring(separator + 1));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(String.format("'%s' is not a valid token", token));
+		}
+		if (separator < 0 || sequence < 0) {
+			throw new IllegalArgumentException(String.format("'%s' is not a valid token", token));
+		}
+		return token.substring(0, separator).equals(epoch) ? sequence : -1;
+	}
+
+	/**
+	 * Stamps the event with the next token and appends it as one line.
+	 * @return the token's sequence number
+	 */
+	public synchronized long append(JSONObject event) {
+		long token = nextToken++;
+		event.element("token", formatToken(token));
+		byte[] line = (event.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+
+		Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (segment == null || segment.count == segmentEvents) {
+			segment = new Segment(token, segmentEvents);
+			segments.add(segment);
+		}
+		if (segment.size + line.length > segment.bytes.length) {
+			byte[] grown = new byte[Math.max(segment.bytes.length * 2, segment.size + line.length)];
+			System.arraycopy(segment.bytes, 0, grown, 0, segment.size);
+			segment.bytes = grown;
+		}
+		System.arraycopy(line, 0, segment.bytes, segment.size, line.length);
+		segment.size += line.length;
+		segment.ends[segment.count++] = segment.size;
+		retainedBytes += line.length;
+
+		while (retainedBytes > maxBytes && segments.size() > 1) {
+			retainedBytes -= segments.remove(0).size;
+		}
+		notifyAll();
+		return token;
+	}
+
+	/**
+	 * The oldest sequence number a subscriber can still resume after.
+	 */
+	public synchronized long getOldestResumable() {
+		return segments.isEmpty() ? nextToken - 1 : segments.get(0).firstToken - 1;
+	}
+
+	public synchronized long getLastToken() {
+		return nextToken - 1;
+	}
+
+	/**
+	 * Events following the given sequence number, up to the end of their segment, or null if
+	 * there are none yet.
+	 * @throws IllegalArgumentException if those events have already been dropped
+	 */
+	public synchronized Chunk read(long afterToken) {
+		long wanted = afterToken + 1;
+		if (wanted >= nextToken) {
+			return null;
+		}
+		Segment first = segments.get(0);
+		if (wanted < first.firstToken) {
+			throw new IllegalArgumentException(String.format("Events after %s are no longer available", formatToken(afterToken)));
+		}
+		Segment segment = segments.get((int) ((wanted - first.firstToken) / segmentEvents));
+		int index = (int) (wanted - segment.firstToken);
+		int start = (index == 0) ? 0 : segment.ends[index - 1];
+		return new Chunk(segment.bytes, start, segment.size - start, segment.firstToken + segment.count - 1);
+	}
+
+	/**
+	 * Blocks until there are events after the given sequence number, the feed is closed,
+	 * or the timeout expires. Returns true if there are events to read.
+	 */
+	public synchronized boolean await(long afterToken, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (nextToken <= afterToken + 1 && !closed) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+			wait(remaining);
+		}
+		return nextToken > afterToken + 1;
+	}
+
+	public synchronized void close() {
+		closed = true;
+		notifyAll();
+	}
+
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+}
@@ -0,0 +1,410 @@
+package web;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Threads and admission control of the HTTP listener.
+ * <p>
+ * Short requests run on a bounded worker pool with a bounded queue. When the queue is full the
+ * request is handed to a couple of shedding threads and flagged as shed, so that it is answered
+ * with a cheap 503 instead of waiting. It is never run on the server's dispatcher thread, since
+ * reading a slow client's request there would stall every connection. Streaming requests hold
+ * on to their thread for as long as the client stays connected, so they are moved to a separate
+ * executor that admits at most a fixed number of concurrent streams. On JDK 24 or later, virtual
+ * threads are used for streams instead of a platform thread pool. Earlier JDKs pin the carrier
+ * thread while a virtual thread waits in a synchronized block, which the streamers do.
+ */
+@SuppressWarnings("restriction")
+public class ServingCore {
+	static final Logger logger = Logger.getLogger(ServingCore.class);
+
+	public static final int DefaultWorkerThreads = 16;
+	public static final int DefaultQueueCapacity = 64;
+	public static final int DefaultMaxStreams = 256;
+	static final int SheddingThreads = 2;
+	static final int VirtualThreadsWithoutPinning = 24;
+
+	/**
+	 * Concurrency gauges, counters and latency histograms of a single endpoint.
+	 */
+	public static class Endpoint {
+		final String name;
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger peak = new AtomicInteger();
+		final AtomicLong served = new AtomicLong();
+		final AtomicLong rejected = new AtomicLong();
+		final AtomicLong bytesSent = new AtomicLong();
+		final AtomicLongArray responses = new AtomicLongArray(6);
+		final LatencyHistogram duration = new LatencyHistogram();
+		final LatencyHistogram firstByte = new LatencyHistogram();
+		volatile boolean streaming;
+
+		Endpoint(String name) {
+			this.name = name;
+		}
+
+		Request enter(HttpExchange exchange) {
+			int now = active.incrementAndGet();
+			int highest;
+			while (now > (highest = peak.get()) && !peak.compareAndSet(highest, now)) {
+			}
+			return new Request(this, exchange);
+		}
+
+		void exit(Request request) {
+			long elapsed = System.nanoTime() - request.startNanos;
+			active.decrementAndGet();
+			served.incrementAndGet();
+			if (!streaming) {
+				duration.record(elapsed);
+			}
+			if (request.body != null) {
+				if (request.body.firstByteNanos == 0 && !streaming) {
+					firstByte.record(elapsed);
+				}
+				int status = request.exchange.getResponseCode();
+				if (status >= 100 && status < 600) {
+					responses.incrementAndGet(status / 100);
+				}
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isStreaming() {
+			return streaming;
+		}
+
+		public int getActive() {
+			return active.get();
+		}
+
+		public int getPeak() {
+			return peak.get();
+		}
+
+		public long getServed() {
+			return served.get();
+		}
+
+		public long getRejected() {
+			return rejected.get();
+		}
+
+		public long getBytesSent() {
+			return bytesSent.get();
+		}
+
+		/**
+		 * Number of responses with a status code in the given class (2 for 2xx etc.)
+		 */
+		public long getResponses(int statusClass) {
+			return responses.get(statusClass);
+		}
+
+		/**
+		 * Duration of short requests, from dispatch until the handler returns.
+		 */
+		public LatencyHistogram getDuration() {
+			return duration;
+		}
+
+		/**
+		 * Time from dispatch until the first byte of the response body is written, or until
+		 * completion for responses without a body.
+		 */
+		public LatencyHistogram getTimeToFirstByte() {
+			return firstByte;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d active (peak %d), %d served, %d rejected, %d bytes sent",
+					name, getActive(), getPeak(), getServed(), getRejected(), getBytesSent());
+		}
+	}
+
+	/**
+	 * Measurement of one request in flight. Response bytes are counted by wrapping the
+	 * exchange's response body.
+	 */
+	static class Request {
+		final long startNanos = System.nanoTime();
+		final HttpExchange exchange;
+		final CountingOutputStream body;
+
+		Request(Endpoint endpoint, HttpExchange exchange) {
+			this.exchange = exchange;
+			if (exchange != null) {
+				this.body = new CountingOutputStream(exchange.getResponseBody(), endpoint, startNanos);
+				exchange.setStreams(null, body);
+			} else {
+				this.body = null;
+			}
+		}
+	}
+
+	static class CountingOutputStream extends FilterOutputStream {
+		final Endpoint endpoint;
+		final long startNanos;
+		long firstByteNanos;
+
+		CountingOutputStream(OutputStream out, Endpoint endpoint, long startNanos) {
+			super(out);
+			this.endpoint = endpoint;
+			this.startNanos = startNanos;
+		}
+
+		private void written(int length) {
+			if (length <= 0) {
+				return;
+			}
+			if (firstByteNanos == 0) {
+				firstByteNanos = System.nanoTime();
+				endpoint.firstByte.record(firstByteNanos - startNanos);
+			}
+			endpoint.bytesSent.addAndGet(length);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			written(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			written(len);
+		}
+	}
+
+	public interface Work {
+		void run() throws IOException;
+	}
+
+	static final ThreadLocal<Boolean> shedding = new ThreadLocal<Boolean>();
+
+	final ThreadPoolExecutor workers;
+	final ThreadPoolExecutor shedders;
+	final ExecutorService streams;
+	final AtomicInteger openStreams = new AtomicInteger();
+	final int maxStreams;
+	final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<String, Endpoint>();
+
+	public ServingCore() {
+		this(DefaultWorkerThreads, DefaultQueueCapacity, DefaultMaxStreams, true);
+	}
+
+	public ServingCore(int workerThreads, int queueCapacity, int maxStreams, boolean preferVirtualThreads) {
+		this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)), namedThreads("http-worker"));
+		this.workers.allowCoreThreadTimeOut(true);
+		// Unbounded, as refusing here would leave only the dispatcher thread to run the exchange.
+		// Each waiting exchange is an open connection, so the server's connection limit bounds it.
+		this.shedders = new ThreadPoolExecutor(SheddingThreads, SheddingThreads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), namedThreads("http-shed"));
+		this.shedders.allowCoreThreadTimeOut(true);
+		this.maxStreams = maxStreams;
+
+		ExecutorService virtual = null;
+		if (preferVirtualThreads) {
+			if (javaVersion() >= VirtualThreadsWithoutPinning) {
+				virtual = virtualThreadExecutor();
+			} else {
+				logger.info(String.format("Not using virtual threads for streams, they need JDK %d or later", VirtualThreadsWithoutPinning));
+			}
+		}
+		if (virtual != null) {
+			this.streams = virtual;
+		} else {
+			this.streams = new ThreadPoolExecutor(0, maxStreams, 60, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), namedThreads("http-stream"));
+		}
+		logger.info(String.format("HTTP serving core: %d workers, queue of %d, up to %d streams on %s",
+				workerThreads, queueCapacity, maxStreams, virtual != null ? "virtual threads" : "platform threads"));
+	}
+
+	static int javaVersion() {
+		String version = System.getProperty("java.specification.version", "1.8");
+		try {
+			return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+		} catch (NumberFormatException e) {
+			return 8;
+		}
+	}
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor() when running on JDK 21 or later, null otherwise.
+	 */
+	static ExecutorService virtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static ThreadFactory namedThreads(final String prefix) {
+		final AtomicInteger counter = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Executor to hand to the HTTP server for dispatching exchanges.
+	 */
+	public Executor getRequestExecutor() {
+		return new Executor() {
+			@Override
+			public void execute(final Runnable exchange) {
+				try {
+					workers.execute(exchange);
+				} catch (RejectedExecutionException e) {
+					shedders.execute(new Runnable() {
+						@Override
+						public void run() {
+							shedding.set(Boolean.TRUE);
+							try {
+								exchange.run();
+							} finally {
+								shedding.remove();
+							}
+						}
+					});
+				}
+			}
+		};
+	}
+
+	/**
+	 * True if the current request was dispatched past the admission limit and should be refused.
+	 */
+	public boolean isShedding() {
+		return shedding.get() != null;
+	}
+
+	public Endpoint endpoint(String name) {
+		Endpoint endpoint = endpoints.get(name);
+		if (endpoint == null) {
+			endpoints.putIfAbsent(name, new Endpoint(name));
+			endpoint = endpoints.get(name);
+		}
+		return endpoint;
+	}
+
+	public void reject(String name) {
+		endpoint(name).rejected.incrementAndGet();
+	}
+
+	public void serve(String name, Work work) throws IOException {
+		serve(name, null, work);
+	}
+
+	/**
+	 * Runs a short request on the calling worker thread, tracked under the given endpoint.
+	 */
+	public void serve(String name, HttpExchange exchange, Work work) throws IOException {
+		Endpoint endpoint = endpoint(name);
+		Request request = endpoint.enter(exchange);
+		try {
+			work.run();
+		} finally {
+			endpoint.exit(request);
+		}
+	}
+
+	public boolean stream(String name, Work work) {
+		return stream(name, null, work);
+	}
+
+	/**
+	 * Moves a long-lived request to the streaming executor.
+	 * @return false if the stream limit is reached, in which case the work was not started
+	 */
+	public boolean stream(String name, HttpExchange exchange, final Work work) {
+		final Endpoint endpoint = endpoint(name);
+		endpoint.streaming = true;
+		if (openStreams.incrementAndGet() > maxStreams) {
+			openStreams.decrementAndGet();
+			endpoint.rejected.incrementAndGet();
+			return false;
+		}
+		final Request request = endpoint.enter(exchange);
+		try {
+			streams.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						work.run();
+					} catch (IOException | RuntimeException e) {
+						logger.debug(String.format("Stream on %s ended: %s", endpoint.getName(), e));
+					} finally {
+						endpoint.exit(request);
+						openStreams.decrementAndGet();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			endpoint.active.decrementAndGet();
+			endpoint.rejected.incrementAndGet();
+			openStreams.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	public int getOpenStreams() {
+		return openStreams.get();
+	}
+
+	public int getQueuedRequests() {
+		return workers.getQueue().size();
+	}
+
+	public Map<String, Endpoint> getEndpoints() {
+		return Collections.unmodifiableMap(new TreeMap<String, Endpoint>(endpoints));
+	}
+
+	public void shutdown() {
+		workers.shutdown();
+		shedders.shutdown();
+		streams.shutdownNow();
+		for (Endpoint endpoint : getEndpoints().values()) {
+			logger.info(endpoint);
+		}
+	}
+}
@@ -80,4 +80,9 @@ public class StaticWebDocument implements WebDocument {
 		return false;
 	}
 
+	@Override
+	public long getContentLength() {
+		return contents.length;
+	}
+
 }
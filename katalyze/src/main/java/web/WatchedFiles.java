@@ -0,0 +1,160 @@
+package web;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import model.LifeCycleAware;
+
+/**
+ * Publishes files from disk as in-memory documents and republishes them when they change,
+ * so edits show up live without requests ever reading the disk. Changes are picked up from a
+ * WatchService, with a periodic modification time check for file systems that don't support it.
+ */
+public class WatchedFiles implements LifeCycleAware {
+	static final Logger logger = Logger.getLogger(WatchedFiles.class);
+
+	static class Entry {
+		final String url;
+		final String contentType;
+		final File file;
+		volatile DynamicFileWebDocument current;
+
+		Entry(String url, String contentType, File file) {
+			this.url = url;
+			this.contentType = contentType;
+			this.file = file;
+		}
+	}
+
+	final Publisher publisher;
+	final long pollIntervalMillis;
+	final List<Entry> entries = new CopyOnWriteArrayList<Entry>();
+	final Map<Path, Set<Entry>> entriesByPath = new ConcurrentHashMap<Path, Set<Entry>>();
+	final Set<Path> watchedDirectories = new HashSet<Path>();
+	WatchService watchService;
+	Thread watcher;
+	ScheduledExecutorService poller;
+
+	public WatchedFiles(Publisher publisher) {
+		this(publisher, 2000);
+	}
+
+	/**
+	 * @param pollIntervalMillis interval of the modification time check that backs up the WatchService
+	 */
+	public WatchedFiles(Publisher publisher, long pollIntervalMillis) {
+		this.publisher = publisher;
+		this.pollIntervalMillis = pollIntervalMillis;
+	}
+
+	public void publish(String url, String contentType, String fileName) {
+		Entry entry = new Entry(url, contentType, new File(fileName).getAbsoluteFile());
+		entries.add(entry);
+		entriesByPath.computeIfAbsent(entry.file.toPath(), p -> ConcurrentHashMap.newKeySet()).add(entry);
+		reload(entry);
+		watch(entry.file.getParentFile().toPath());
+	}
+
+	private void reload(Entry entry) {
+		DynamicFileWebDocument doc = new DynamicFileWebDocument(entry.contentType, entry.file);
+		entry.current = doc;
+		if (doc.isLoaded()) {
+			// Unchanged contents are recognized by the publisher and keep their ETag
+			publisher.publish(entry.url, doc);
+		}
+	}
+
+	private synchronized void watch(Path directory) {
+		if (watchService == null || !watchedDirectories.add(directory)) {
+			return;
+		}
+		try {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			logger.info(String.format("Not watching %s, relying on modification times: %s", directory, e));
+		}
+	}
+
+	private void processWatchEvents() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path directory = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.context() instanceof Path) {
+						Set<Entry> changed = entriesByPath.get(directory.resolve((Path) event.context()));
+						if (changed != null) {
+							for (Entry entry : changed) {
+								reload(entry);
+							}
+						}
+					}
+				}
+				key.reset();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped
+		}
+	}
+
+	private void checkModificationTimes() {
+		for (Entry entry : entries) {
+			DynamicFileWebDocument current = entry.current;
+			if (current == null || current.isStale()) {
+				reload(entry);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			for (Entry entry : entries) {
+				watch(entry.file.getParentFile().toPath());
+			}
+			watcher = new Thread(this::processWatchEvents, "watched-files");
+			watcher.setDaemon(true);
+			watcher.start();
+		} catch (IOException e) {
+			logger.info(String.format("No file watching available, relying on modification times: %s", e));
+		}
+
+		poller = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "watched-files-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		poller.scheduleWithFixedDelay(this::checkModificationTimes, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public synchronized void stop() throws IOException {
+		if (poller != null) {
+			poller.shutdownNow();
+		}
+		if (watchService != null) {
+			watchService.close();
+			watchService = null;
+		}
+		watchedDirectories.clear();
+	}
+}
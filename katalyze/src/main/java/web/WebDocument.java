@@ -9,5 +9,27 @@ public interface WebDocument {
 	String getContentType();
 	void writeContents(OutputStream target) throws IOException;
 	boolean isGzipCompressed();
+
+	/**
+	 * The HTTP Content-Encoding of the contents, or null if they are not encoded.
+	 */
+	default String getContentEncoding() {
+		return isGzipCompressed() ? "gzip" : null;
+	}
+
+	/**
+	 * Length in bytes of what writeContents produces, or -1 if the contents are not fixed.
+	 */
+	default long getContentLength() {
+		return -1;
+	}
+
+	/**
+	 * Identifies this version of fixed contents without hashing them, for documents that
+	 * know when they change. Null means the publisher hashes the contents instead.
+	 */
+	default byte[] getFingerprint() {
+		return null;
+	}
 	
-}
\ No newline at end of file
+}
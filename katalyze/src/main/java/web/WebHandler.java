@@ -8,4 +8,19 @@ import com.sun.net.httpserver.HttpExchange;
 public interface WebHandler {
 	boolean matches(HttpExchange exchange);
 	public void handle( HttpExchange exchange) throws IOException;
+
+	/**
+	 * Streaming handlers keep the exchange open while the client is connected, and are run
+	 * outside of the worker pool used for short requests.
+	 */
+	default boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * Endpoint name under which requests to this handler are accounted.
+	 */
+	default String getName() {
+		return getClass().getSimpleName();
+	}
 }
@@ -1,26 +1,90 @@
 package web;
 
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
 
 public class WebPublisher implements Publisher {
-	ConcurrentHashMap<String, WebDocument> documents = new ConcurrentHashMap<String, WebDocument>();
-	boolean useCompression = false;
+	static final Logger logger = Logger.getLogger(WebPublisher.class);
+
+	ConcurrentHashMap<String, PublishedDocument> documents = new ConcurrentHashMap<String, PublishedDocument>();
+	final CompressionSettings compression;
+	final AtomicInteger unchangedCount = new AtomicInteger();
 	
 	public WebPublisher(boolean useCompression) {
-		this.useCompression = useCompression;
+		this(useCompression ? new CompressionSettings(Deflater.DEFAULT_COMPRESSION) : null);
+	}
+
+	/**
+	 * @param compression compression levels for encoded variants, or null to serve documents unencoded
+	 */
+	public WebPublisher(CompressionSettings compression) {
+		this.compression = compression;
+	}
+
+	private static byte[] digestOf(WebDocument doc) {
+		if (doc.getContentLength() < 0) {
+			return null;
+		}
+		if (doc.getFingerprint() != null) {
+			return doc.getFingerprint();
+		}
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			OutputStream nullStream = new OutputStream() {
+				@Override
+				public void write(int b) { }
+
+				@Override
+				public void write(byte[] b, int off, int len) { }
+			};
+			DigestOutputStream digestStream = new DigestOutputStream(nullStream, digest);
+			doc.writeContents(digestStream);
+			digestStream.close();
+			return digest.digest();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			logger.warn(String.format("Unable to hash document: %s", e));
+			return null;
+		}
 	}
 	
 	public void publish(String url, WebDocument doc) {
-		if (useCompression && !doc.isGzipCompressed()) {
-			doc = CompressedWebDocument.Compress(doc);
+		byte[] digest = digestOf(doc);
+		PublishedDocument existing = documents.get(url);
+		if (digest != null && existing != null && Arrays.equals(digest, existing.digest)) {
+			// Same bytes as before: keep the existing version, its encoded variants and its validators
+			unchangedCount.incrementAndGet();
+			return;
 		}
-		documents.put(url, doc);
+
+		documents.put(url, new PublishedDocument(doc, digest, System.currentTimeMillis(), compression));
 	}
 	
 	public WebDocument get(String url) {
+		PublishedDocument published = documents.get(url);
+		return (published == null) ? null : published.document;
+	}
+
+	public PublishedDocument getPublished(String url) {
 		return documents.get(url);
 	}
+
+	/**
+	 * Number of publications that were skipped because the contents hadn't changed.
+	 */
+	public int getUnchangedCount() {
+		return unchangedCount.get();
+	}
 	
 
 }
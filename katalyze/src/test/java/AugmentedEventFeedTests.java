@@ -0,0 +1,179 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import jsonfeed.JsonEvent;
+import model.Contest;
+import model.EventImportance;
+import model.LoggableEvent;
+import net.sf.json.JSONObject;
+import web.AugmentedEventFeed;
+import web.AugmentedEventFeedStreamer;
+import web.SegmentedEventFeed;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("restriction")
+public class AugmentedEventFeedTests {
+	SegmentedEventFeed feed;
+	AugmentedEventFeed augmented;
+	HttpServer server;
+	Contest contest = new Contest();
+
+	@Before
+	public void setUp() throws IOException {
+		feed = new SegmentedEventFeed(2, SegmentedEventFeed.DefaultMaxBytes);
+		augmented = new AugmentedEventFeed(feed);
+		setUpServer();
+	}
+
+	private void setUpServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new AugmentedEventFeedStreamer(feed, "/event-feed")::handle);
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private JsonEvent incoming(String type, String id) throws IOException {
+		return JsonEvent.from(JSONObject.fromObject(
+				String.format("{\"type\":\"%s\",\"id\":\"%s\",\"op\":\"create\",\"data\":{\"id\":\"%s\"}}", type, id, id)));
+	}
+
+	private LoggableEvent commentary(String message) {
+		return new LoggableEvent(contest, null, 60000, Instant.now(), message, EventImportance.Normal, null);
+	}
+
+	private String[] get(String query, int expectedStatus) throws IOException {
+		URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), "/event-feed" + query);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		assertEquals(expectedStatus, connection.getResponseCode());
+		InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) >= 0) {
+			body.write(b);
+		}
+		in.close();
+		String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		return text.isEmpty() ? new String[0] : text.split("\n");
+	}
+
+	@Test
+	public void commentaryFollowsTheIncomingEvents() throws IOException {
+		augmented.send(incoming("submissions", "s1"));
+		augmented.notify(commentary("Team 1 submitted"));
+		augmented.send(incoming("judgements", "j1"));
+
+		String[] lines = get("?stream=false", 200);
+		assertEquals(3, lines.length);
+		JSONObject first = JSONObject.fromObject(lines[0]);
+		assertEquals("submissions", first.getString("type"));
+		assertEquals("s1", first.getJSONObject("data").getString("id"));
+		JSONObject second = JSONObject.fromObject(lines[1]);
+		assertEquals("commentary", second.getString("type"));
+		assertEquals("Team 1 submitted", second.getJSONObject("data").getString("message"));
+		assertEquals("judgements", JSONObject.fromObject(lines[2]).getString("type"));
+
+		assertEquals(feed.formatToken(1), first.getString("token"));
+		assertEquals(feed.formatToken(3), JSONObject.fromObject(lines[2]).getString("token"));
+	}
+
+	@Test
+	public void incomingEventsAreNotModified() throws IOException {
+		JsonEvent event = incoming("teams", "t1");
+		augmented.send(event);
+		assertFalse(event.getSource().has("token"));
+	}
+
+	@Test
+	public void resumesAfterToken() throws IOException {
+		for (int i = 1; i <= 5; i++) {
+			augmented.send(incoming("submissions", "s" + i));
+		}
+		String[] all = get("?stream=false", 200);
+		assertEquals(5, all.length);
+
+		String token = JSONObject.fromObject(all[2]).getString("token");
+		String[] rest = get("?stream=false&since_token=" + token, 200);
+		assertEquals(2, rest.length);
+		assertEquals(all[3], rest[0]);
+		assertEquals(all[4], rest[1]);
+
+		String last = JSONObject.fromObject(all[4]).getString("token");
+		assertEquals(0, get("?stream=false&since_token=" + last, 200).length);
+	}
+
+	@Test
+	public void subscribersShareTheSegmentBytes() throws IOException {
+		augmented.send(incoming("submissions", "s1"));
+		augmented.send(incoming("submissions", "s2"));
+		augmented.send(incoming("submissions", "s3"));
+
+		SegmentedEventFeed.Chunk first = feed.read(0);
+		SegmentedEventFeed.Chunk second = feed.read(0);
+		assertSame(first.bytes, second.bytes);
+		assertEquals(2, first.lastToken);
+
+		SegmentedEventFeed.Chunk middle = feed.read(1);
+		assertSame(first.bytes, middle.bytes);
+		assertEquals(first.offset + first.length, middle.offset + middle.length);
+		assertEquals(3, feed.read(2).lastToken);
+		assertNull(feed.read(3));
+	}
+
+	@Test
+	public void droppedEventsCantBeResumed() throws IOException {
+		feed = new SegmentedEventFeed(2, 200);
+		augmented = new AugmentedEventFeed(feed);
+		server.stop(0);
+		setUpServer();
+		for (int i = 1; i <= 10; i++) {
+			augmented.send(incoming("submissions", "s" + i));
+		}
+		assertTrue(feed.getOldestResumable() > 0);
+		get("?stream=false&since_token=" + feed.formatToken(1), 410);
+		get("?stream=false&since_token=" + feed.formatToken(feed.getOldestResumable()), 200);
+	}
+
+	@Test
+	public void rejectsInvalidTokens() throws IOException {
+		augmented.send(incoming("submissions", "s1"));
+		get("?since_token=bogus", 400);
+		get("?since_token=" + feed.formatToken(7), 400);
+		get("?since_token=0-1", 410);
+	}
+
+	@Test
+	public void streamEndsWhenTheFeedCloses() throws Exception {
+		augmented.send(incoming("submissions", "s1"));
+		JsonEvent later = incoming("submissions", "s2");
+		Thread closer = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+			}
+			augmented.send(later);
+			augmented.stop();
+		});
+		closer.start();
+		assertEquals(2, get("", 200).length);
+		closer.join();
+	}
+}
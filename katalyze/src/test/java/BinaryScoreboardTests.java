@@ -0,0 +1,194 @@
+package tests;
+
+import clics.BinaryScoreDump;
+import clics.ExtendedScoreDump;
+import io.EntityOperation;
+import model.*;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+import web.WebPublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryScoreboardTests extends ContestSimulatorTest {
+	WebPublisher publisher = new WebPublisher(false);
+
+	private void buildContest(int nProblems, int nTeams) {
+		contest = new Contest();
+		for (int i = 0; i < nProblems; i++) {
+			String label = Character.toString((char) ('A' + i));
+			contest.addProblem(new Problem(Integer.toString(i + 1), "Problem " + label, label, null));
+		}
+		for (int i = 0; i < nTeams; i++) {
+			contest.registerTeam(Integer.toString(i + 1), "Team " + i, null, new Group[0], new String[0], new String[0], false, EntityOperation.CREATE);
+		}
+		teams = contest.getTeams();
+		problems = contest.getProblems().toArray(new Problem[0]);
+	}
+
+	private byte[] published(String url) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		publisher.get(url).writeContents(out);
+		return out.toByteArray();
+	}
+
+	/* Mirrors web/scoreboard-binary.js */
+	static class Decoder {
+		final byte[] bytes;
+		int offset = 0;
+
+		Decoder(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		long varint() {
+			long value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = bytes[offset++] & 0xff;
+				value |= (long) (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		long signed() {
+			long value = varint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		String string() {
+			int length = (int) varint();
+			String value = new String(bytes, offset, length, StandardCharsets.UTF_8);
+			offset += length;
+			return value;
+		}
+
+		JSONArray decode() {
+			assertEquals("KSB", new String(bytes, 0, 3, StandardCharsets.US_ASCII));
+			assertEquals(BinaryScoreDump.FormatVersion, bytes[3]);
+			offset = 4;
+			varint();
+			long contestTime = signed();
+			int problemCount = (int) varint();
+			String[][] problems = new String[problemCount][];
+			for (int i = 0; i < problemCount; i++) {
+				problems[i] = new String[] { string(), string() };
+			}
+			List<String> languages = new ArrayList<String>();
+			languages.add(null);
+			for (long i = varint(); i > 0; i--) {
+				languages.add(string());
+			}
+
+			JSONArray rows = new JSONArray();
+			for (long r = varint(); r > 0; r--) {
+				String teamId = string();
+				JSONObject row = new JSONObject().element("rank", varint()).element("team_id", teamId);
+				JSONObject score = new JSONObject().element("num_solved", varint()).element("total_time", signed());
+				String mainLanguage = languages.get((int) varint());
+				if (mainLanguage != null) {
+					row.element("main_lang", mainLanguage);
+				}
+				row.element("score", score);
+				JSONArray cells = new JSONArray();
+				for (int c = 0; c < problemCount; c++) {
+					int flags = bytes[offset++];
+					JSONObject cell = new JSONObject()
+						.element("problem_id", problems[c][0])
+						.element("label", problems[c][1])
+						.element("num_judged", varint())
+						.element("solved", (flags & 1) != 0)
+						.element("time", signed());
+					long lastUpd = signed();
+					if (lastUpd != 0) {
+						cell.element("lastUpd", lastUpd);
+					}
+					if ((flags & 2) != 0) {
+						JSONObject potential = new JSONObject().element("rank", varint());
+						if ((flags & 4) != 0) {
+							potential.element("before", signed());
+						}
+						cell.element("potential", potential);
+					}
+					if ((flags & 8) != 0) {
+						cell.element("lang", languages.get((int) varint()));
+					}
+					cells.add(cell);
+				}
+				row.element("problems", cells);
+				if (rows.isEmpty()) {
+					row.element("contestTime", contestTime);
+				}
+				rows.add(row);
+			}
+			assertEquals(bytes.length, offset);
+			return rows;
+		}
+	}
+
+	@Test
+	public void decodesToTheJsonScoreboard() throws IOException {
+		buildContest(3, 4);
+		Accepted(teams[0], problems[0], 10);
+		WrongAnswer(teams[1], problems[0], 12);
+		Accepted(teams[1], problems[0], 20);
+		Accepted(teams[1], problems[2], 31);
+		WrongAnswer(teams[2], problems[1], 40);
+		contest.updateTime(45 * 60000);
+		contest.publishReadModel();
+
+		new ExtendedScoreDump(contest, publisher).execute(45);
+		assertEquals(BinaryScoreDump.ContentType, publisher.get("/scoreboard.bin").getContentType());
+
+		JSONArray json = JSONArray.fromObject(new String(published("/scoreboard"), StandardCharsets.UTF_8));
+		JSONArray decoded = new Decoder(published("/scoreboard.bin")).decode();
+		assertEquals(json.toString(), decoded.toString());
+	}
+
+	@Test
+	public void encodesSubmissionsBeforeTheStart() throws IOException {
+		buildContest(2, 2);
+		WrongAnswer(teams[0], problems[0], -3);
+		Accepted(teams[0], problems[0], -2);
+		Accepted(teams[1], problems[1], 5);
+		contest.updateTime(10 * 60000);
+		contest.publishReadModel();
+
+		new ExtendedScoreDump(contest, publisher).execute(10);
+
+		JSONArray json = JSONArray.fromObject(new String(published("/scoreboard"), StandardCharsets.UTF_8));
+		JSONArray decoded = new Decoder(published("/scoreboard.bin")).decode();
+		assertEquals(json.toString(), decoded.toString());
+	}
+
+	@Test
+	public void isAnOrderOfMagnitudeSmallerThanJson() throws IOException {
+		buildContest(12, 120);
+		for (int t = 0; t < teams.length; t++) {
+			for (int p = 0; p < problems.length; p++) {
+				if ((t + p) % 3 == 0) {
+					WrongAnswer(teams[t], problems[p], 10 + p);
+				}
+				if ((t * 7 + p) % 4 == 0) {
+					Accepted(teams[t], problems[p], 20 + t % 50 + p);
+				}
+			}
+		}
+		contest.updateTime(200 * 60000);
+		contest.publishReadModel();
+		new ExtendedScoreDump(contest, publisher).execute(200);
+
+		int jsonSize = published("/scoreboard").length;
+		int binarySize = published("/scoreboard.bin").length;
+		assertTrue(String.format("%d bytes binary vs %d bytes JSON", binarySize, jsonSize), binarySize * 10 < jsonSize);
+	}
+}
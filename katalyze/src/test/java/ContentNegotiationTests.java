@@ -0,0 +1,66 @@
+package tests;
+
+import org.junit.Test;
+import web.CompressionSettings;
+import web.PublishedDocument;
+import web.StaticWebDocument;
+import web.WebDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ContentNegotiationTests {
+	static final String contents = "{\"teams\": [1, 2, 3, 4, 5, 6, 7, 8, 9, 10]}";
+
+	private PublishedDocument publish(CompressionSettings compression) {
+		WebDocument doc = new StaticWebDocument("application/json", contents);
+		return new PublishedDocument(doc, new byte[] { 1, 2, 3, 4 }, 0, compression);
+	}
+
+	private static byte[] bytesOf(WebDocument doc) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.writeContents(out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void prefersGzipAndCachesVariant() throws IOException {
+		PublishedDocument published = publish(new CompressionSettings(6).setLevel("json", 9));
+		WebDocument gzip = published.negotiate("deflate, gzip");
+		assertEquals("gzip", gzip.getContentEncoding());
+		assertSame(gzip, published.negotiate("gzip"));
+		assertEquals("\"01020304-gzip\"", published.getEtag(gzip));
+		assertTrue(published.matches("\"01020304-gzip\"", gzip));
+		assertFalse(published.matches("\"01020304\"", gzip));
+
+		ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+		GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytesOf(gzip)));
+		byte[] buffer = new byte[256];
+		int read;
+		while ((read = in.read(buffer)) > 0) {
+			decoded.write(buffer, 0, read);
+		}
+		assertEquals(contents, decoded.toString("UTF-8"));
+	}
+
+	@Test
+	public void honorsQualityValues() {
+		PublishedDocument published = publish(new CompressionSettings(6));
+		assertEquals("deflate", published.negotiate("gzip;q=0.5, deflate").getContentEncoding());
+		assertNull(published.negotiate("gzip;q=0, deflate;q=0").getContentEncoding());
+		assertNull(published.negotiate("identity, gzip;q=0.5").getContentEncoding());
+		assertEquals("gzip", published.negotiate("*").getContentEncoding());
+		assertNull(published.negotiate(null).getContentEncoding());
+	}
+
+	@Test
+	public void uncompressedWithoutSettings() {
+		PublishedDocument published = publish(null);
+		assertFalse(published.hasVariants());
+		assertNull(published.negotiate("gzip").getContentEncoding());
+	}
+}
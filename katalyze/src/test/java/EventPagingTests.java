@@ -0,0 +1,90 @@
+package tests;
+
+import model.EventImportance;
+import model.InitialSubmission;
+import model.LoggableEvent;
+import model.PublishableEventList;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import web.Publisher;
+import web.WebDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EventPagingTests extends ContestSimulatorTest {
+	Map<String, WebDocument> published = new HashMap<String, WebDocument>();
+	Map<String, Integer> publishCount = new HashMap<String, Integer>();
+	Publisher publisher = (url, doc) -> {
+		published.put(url, doc);
+		publishCount.merge(url, 1, Integer::sum);
+	};
+	JSONArray expected = new JSONArray();
+	PublishableEventList list;
+
+	@Before
+	public void setUp() {
+		InitContest(1, 2);
+		list = new PublishableEventList(publisher, "/AllNotifications", 3);
+	}
+
+	private void add(int team, String message) {
+		InitialSubmission submission = new InitialSubmission(Integer.toString(submissionId++), teams[team], problems[0], "Fortran", 60000);
+		LoggableEvent event = new LoggableEvent(contest, 60000, Instant.now(), message, EventImportance.Normal, submission, null);
+		list.add(event);
+		expected.add(new JSONObject()
+			.element("id", Integer.toString(event.id))
+			.element("time", Integer.toString(event.contestTimeMinutes()))
+			.element("message", event.message)
+			.element("importance", event.importance.ordinal())
+			.element("team", event.team.getId())
+			.element("judgement", event.submission.id));
+	}
+
+	private String contents(String url) throws IOException {
+		WebDocument doc = published.get(url);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.writeContents(out);
+		assertEquals(out.size(), doc.getContentLength());
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void completeListMatchesJsonLibLayout() throws IOException {
+		list.clear();
+		assertEquals(expected.toString(2), contents("/AllNotifications"));
+		for (int i = 0; i < 7; i++) {
+			add(i % 2, "event \"" + i + "\" for {team}");
+			assertEquals(expected.toString(2), contents("/AllNotifications"));
+		}
+	}
+
+	@Test
+	public void fullPagesArePublishedOnce() throws IOException {
+		for (int i = 0; i < 7; i++) {
+			add(0, "event " + i);
+		}
+		assertEquals(Integer.valueOf(1), publishCount.get("/AllNotifications/page/0"));
+		assertEquals(Integer.valueOf(1), publishCount.get("/AllNotifications/page/1"));
+		assertNull(published.get("/AllNotifications/page/2"));
+
+		JSONArray page1 = JSONArray.fromObject(contents("/AllNotifications/page/1"));
+		assertEquals(3, page1.size());
+		assertEquals(expected.getJSONObject(3), page1.getJSONObject(0));
+
+		JSONObject head = JSONObject.fromObject(contents("/AllNotifications/head"));
+		assertEquals(3, head.getInt("pageSize"));
+		assertEquals(2, head.getInt("pages"));
+		assertEquals(7, head.getInt("count"));
+		assertEquals(1, head.getJSONArray("events").size());
+		assertEquals(expected.getJSONObject(6), head.getJSONArray("events").getJSONObject(0));
+	}
+}
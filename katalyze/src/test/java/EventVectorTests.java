@@ -0,0 +1,99 @@
+package tests;
+
+import model.EventImportance;
+import model.InitialSubmission;
+import model.LoggableEvent;
+import model.Problem;
+import org.junit.Before;
+import org.junit.Test;
+import web.EventFilter;
+import web.EventVector;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventVectorTests extends ContestSimulatorTest {
+	EventVector events;
+	List<LoggableEvent> added;
+
+	@Before
+	public void setUp() {
+		InitContest(1, 3);
+		problems = new Problem[] {
+				new Problem("1", "One", "A", null),
+				new Problem("2", "Two", "B", null),
+				new Problem("3", "Three", "C", null)
+		};
+		events = new EventVector();
+		added = new ArrayList<LoggableEvent>();
+
+		add(0, 0, EventImportance.Normal);
+		add(1, 1, EventImportance.Breaking);
+		add(0, 2, EventImportance.Whatever);
+		add(2, 0, EventImportance.Breaking);
+		add(0, 0, EventImportance.Breaking);
+	}
+
+	private void add(int team, int problem, EventImportance importance) {
+		InitialSubmission submission = new InitialSubmission(Integer.toString(submissionId++), teams[team], problems[problem], "Fortran", 60000);
+		LoggableEvent event = new LoggableEvent(contest, 60000, Instant.now(), "{team} {problem}", importance, submission, null);
+		events.add(event);
+		added.add(event);
+	}
+
+	private List<Integer> drain(EventVector.Cursor cursor) {
+		List<Integer> positions = new ArrayList<Integer>();
+		int position;
+		while ((position = cursor.next()) >= 0) {
+			positions.add(position);
+		}
+		return positions;
+	}
+
+	@Test
+	public void resumesAfterSinceId() {
+		int sinceId = added.get(2).id;
+		assertEquals(3, events.indexAfterId(sinceId));
+		assertEquals(0, events.indexAfterId(added.get(0).id - 1));
+		assertEquals(5, events.indexAfterId(added.get(4).id));
+
+		assertEquals(Arrays.asList(3, 4), drain(events.cursor(EventFilter.All, sinceId)));
+	}
+
+	@Test
+	public void filtersCombineWithResume() {
+		EventFilter teamAndBreaking = new EventFilter(teams[0].getId(), null, EventImportance.Breaking);
+		assertEquals(Arrays.asList(4), drain(events.cursor(teamAndBreaking, null)));
+
+		EventFilter problem = new EventFilter(null, problems[0].getId(), null);
+		assertEquals(Arrays.asList(3, 4), drain(events.cursor(problem, added.get(0).id)));
+	}
+
+	@Test
+	public void cursorSeesEventsAddedLater() throws InterruptedException {
+		EventVector.Cursor cursor = events.cursor(new EventFilter(teams[1].getId(), null, null), null);
+		assertEquals(Arrays.asList(1), drain(cursor));
+		assertFalse(cursor.await(10));
+
+		add(1, 2, EventImportance.Normal);
+		assertTrue(cursor.await(10));
+		assertEquals(5, cursor.next());
+	}
+
+	@Test
+	public void cursorForProblemWithoutEventsSeesItsFirstEvent() throws InterruptedException {
+		Problem later = new Problem("4", "Four", "D", null);
+		EventVector.Cursor cursor = events.cursor(new EventFilter(null, later.getId(), null), null);
+		assertEquals(Arrays.asList(), drain(cursor));
+
+		add(0, 1, EventImportance.Normal);
+		InitialSubmission submission = new InitialSubmission(Integer.toString(submissionId++), teams[2], later, "Fortran", 60000);
+		events.add(new LoggableEvent(contest, 60000, Instant.now(), "{team} {problem}", EventImportance.Normal, submission, null));
+		assertTrue(cursor.await(10));
+		assertEquals(Arrays.asList(6), drain(cursor));
+	}
+}
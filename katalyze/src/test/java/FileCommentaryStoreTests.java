@@ -0,0 +1,100 @@
+package tests;
+
+import icat.AnalystMessage;
+import io.FileCommentaryStore;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileCommentaryStoreTests {
+
+	private File tempFile() throws IOException {
+		File file = File.createTempFile("commentary", ".ndjson");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void entriesSurviveReopening() throws Exception {
+		File file = tempFile();
+
+		FileCommentaryStore store = new FileCommentaryStore(file);
+		store.addEntry(10, "katalyzer", "automatic", 2, "17");
+		store.addEntry(12, "analyst", "hand written", 1, null);
+		store.addEntry(30, "analyst", "later", 1, null);
+		store.close();
+
+		FileCommentaryStore reopened = new FileCommentaryStore(file);
+		List<AnalystMessage> analystMessages = reopened.getAnalystMessages(-1, 20);
+		assertEquals(1, analystMessages.size());
+		assertEquals("hand written", analystMessages.get(0).text);
+
+		reopened.addEntry(40, "analyst", "after reopen", 1, null);
+		List<AnalystMessage> newer = reopened.getAnalystMessages(analystMessages.get(0).id, 60);
+		assertEquals(2, newer.size());
+		assertEquals(4, newer.get(1).id);
+		reopened.close();
+	}
+
+	private List<JSONObject> records(File file) throws IOException {
+		List<JSONObject> target = new ArrayList<JSONObject>();
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			target.add(JSONObject.fromObject(line));
+		}
+		return target;
+	}
+
+	@Test
+	public void entriesAreAppendedAsJsonLines() throws Exception {
+		File file = tempFile();
+		FileCommentaryStore store = new FileCommentaryStore(file);
+		store.addEntry(5, "katalyzer", "a", 2, null);
+		store.addEntry(20, "katalyzer", "c", 2, "3");
+		store.close();
+
+		List<JSONObject> records = records(file);
+		assertEquals(2, records.size());
+		assertEquals("entry", records.get(1).getString("type"));
+		assertEquals(2, records.get(1).getInt("id"));
+		assertEquals(20, records.get(1).getInt("contest_time"));
+		assertEquals("3", records.get(1).getString("submission_id"));
+		assertFalse(records.get(0).has("submission_id"));
+	}
+
+	@Test
+	public void duplicateSubmissionsAreRejected() throws Exception {
+		File file = tempFile();
+		FileCommentaryStore store = new FileCommentaryStore(file);
+		store.addSubmission("A", "1", "java", "AC", "2026/01/01 10:00:00", 12, "100");
+		try {
+			store.addSubmission("A", "1", "java", "AC", "2026/01/01 10:00:00", 12, "100");
+			fail("Expected duplicate submission to be rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Duplicate entry"));
+		}
+		store.close();
+
+		List<JSONObject> records = records(file);
+		assertEquals(1, records.size());
+		assertEquals("AC", records.get(0).getString("result"));
+
+		// The index is rebuilt from the file
+		FileCommentaryStore reopened = new FileCommentaryStore(file);
+		try {
+			reopened.addSubmission("A", "1", "java", "AC", "2026/01/01 10:00:00", 12, "100");
+			fail("Expected duplicate submission to be rejected after reopening");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Duplicate entry"));
+		}
+		reopened.close();
+	}
+}
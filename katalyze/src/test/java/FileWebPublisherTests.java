@@ -0,0 +1,39 @@
+package tests;
+
+import org.junit.Test;
+import web.FileWebPublisher;
+import web.StaticWebDocument;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class FileWebPublisherTests {
+
+	@Test
+	public void writesLatestVersionAtomically() throws Exception {
+		File directory = Files.createTempDirectory("published").toFile();
+		FileWebPublisher publisher = new FileWebPublisher(directory.getPath());
+
+		for (int i = 0; i <= 200; i++) {
+			publisher.publish("/TeamNotifications/7", new StaticWebDocument("application/json", "[" + i + "]"));
+		}
+		publisher.flush();
+
+		File target = new File(directory, "TeamNotifications/7");
+		assertEquals("[200]", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+		assertArrayEquals(new String[] { "7" }, target.getParentFile().list());
+		assertTrue(publisher.getCoalescingRatio() >= 0 && publisher.getCoalescingRatio() < 1);
+
+		publisher.publish("/last", new StaticWebDocument("text/plain", "bye"));
+		publisher.stop();
+		assertEquals("bye", new String(Files.readAllBytes(new File(directory, "last").toPath()), StandardCharsets.UTF_8));
+
+		target.delete();
+		target.getParentFile().delete();
+		new File(directory, "last").delete();
+		directory.delete();
+	}
+}
@@ -0,0 +1,116 @@
+package tests;
+
+import clics.ExtendedScoreDump;
+import io.EntityOperation;
+import model.*;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import web.WebPublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GroupScoreboardTests extends ContestSimulatorTest {
+	WebPublisher publisher;
+	ExtendedScoreDump dump;
+
+	@Before
+	public void setUp() {
+		contest = new Contest();
+		contest.addProblem(new Problem("1", "Problem A", "A", null));
+		contest.addProblem(new Problem("2", "Problem B", "B", null));
+		Group north = contest.registerGroup("north", "North", false);
+		Group south = contest.registerGroup("south", "South", false);
+		Group hidden = contest.registerGroup("observers", "Observers", true);
+
+		contest.registerTeam("1", "N1", null, new Group[] { north }, new String[0], new String[0], false, EntityOperation.CREATE);
+		contest.registerTeam("2", "N2", null, new Group[] { north }, new String[0], new String[0], false, EntityOperation.CREATE);
+		contest.registerTeam("3", "S1", null, new Group[] { south }, new String[0], new String[0], false, EntityOperation.CREATE);
+		contest.registerTeam("4", "S2", null, new Group[] { south }, new String[0], new String[0], false, EntityOperation.CREATE);
+		contest.registerTeam("5", "O1", null, new Group[] { hidden }, new String[0], new String[0], false, EntityOperation.CREATE);
+		problems = contest.getProblems().toArray(new Problem[0]);
+
+		Accepted(team("3"), problems[0], 5);
+		Accepted(team("3"), problems[1], 8);
+		Accepted(team("2"), problems[0], 10);
+		Accepted(team("4"), problems[0], 20);
+		contest.publishReadModel();
+
+		publisher = new WebPublisher(false);
+		dump = new ExtendedScoreDump(contest, publisher);
+		dump.execute(30);
+	}
+
+	private Team team(String id) {
+		try {
+			return contest.getTeam(id);
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private JSONArray published(String url) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		publisher.get(url).writeContents(out);
+		return JSONArray.fromObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private String ranking(JSONArray scoreboard) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < scoreboard.size(); i++) {
+			JSONObject row = scoreboard.getJSONObject(i);
+			result.append(row.getInt("rank")).append(':').append(row.getString("team_id")).append(' ');
+		}
+		return result.toString().trim();
+	}
+
+	@Test
+	public void ranksTeamsWithinTheirGroup() throws IOException {
+		assertEquals("1:3 2:2 3:4 4:1", ranking(published("/scoreboard")));
+		assertEquals("1:2 2:1", ranking(published("/scoreboard/group/north")));
+		assertEquals("1:3 2:4", ranking(published("/scoreboard/group/south")));
+		assertNull(publisher.get("/scoreboard/group/observers"));
+
+		// Potential ranks are group-local as well: behind team 2 here, but behind three teams overall
+		JSONObject cell = published("/scoreboard/group/north").getJSONObject(1).getJSONArray("problems").getJSONObject(0);
+		assertEquals(2, cell.getJSONObject("potential").getInt("rank"));
+		cell = published("/scoreboard").getJSONObject(3).getJSONArray("problems").getJSONObject(0);
+		assertEquals(4, cell.getJSONObject("potential").getInt("rank"));
+	}
+
+	@Test
+	public void republishesOnlyGroupsOfChangedTeams() throws IOException {
+		ReadModel.GroupView southBefore = contest.getReadModel().getGroup("south");
+		int unchanged = publisher.getUnchangedCount();
+
+		Accepted(team("1"), problems[0], 25);
+		Accepted(team("1"), problems[1], 26);
+		contest.publishReadModel();
+		dump.execute(30);
+
+		assertSame(southBefore, contest.getReadModel().getGroup("south"));
+		assertEquals("1:1 2:2", ranking(published("/scoreboard/group/north")));
+		assertEquals(unchanged, publisher.getUnchangedCount());
+	}
+
+	@Test
+	public void emptiesScoreboardOfGroupWithoutVisibleTeams() throws IOException {
+		Group north = contest.getGroup("north");
+		contest.registerTeam("3", "S1", null, new Group[] { north }, new String[0], new String[0], false, EntityOperation.UPDATE);
+		contest.registerTeam("4", "S2", null, new Group[0], new String[0], new String[0], true, EntityOperation.UPDATE);
+		contest.publishReadModel();
+		dump.execute(31);
+
+		assertNull(contest.getReadModel().getGroup("south"));
+		assertEquals(0, published("/scoreboard/group/south").size());
+		assertEquals(3, published("/scoreboard/group/north").size());
+
+		dump.execute(32);
+		assertEquals(0, published("/scoreboard/group/south").size());
+	}
+}
@@ -0,0 +1,116 @@
+package tests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import web.LatencyHistogram;
+import web.MetricsHandler;
+import web.ServingCore;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("restriction")
+public class MetricsTests {
+	ServingCore core;
+	HttpServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		core = new ServingCore(2, 4, 4, false);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> core.serve(exchange.getRequestURI().getPath(), exchange, () -> {
+			byte[] body = "hello".getBytes("UTF-8");
+			exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		}));
+		server.setExecutor(core.getRequestExecutor());
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+		core.shutdown();
+	}
+
+	private int get(String path) throws IOException {
+		URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		while (in.read() >= 0) {
+		}
+		in.close();
+		return status;
+	}
+
+	// The handler finishes its accounting after the client has read the response
+	private ServingCore.Endpoint awaitServed(String route, long served) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		ServingCore.Endpoint endpoint = core.getEndpoints().get(route);
+		while ((endpoint == null || endpoint.getServed() < served) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+			endpoint = core.getEndpoints().get(route);
+		}
+		return endpoint;
+	}
+
+	@Test
+	public void bucketsDoubleFromSixtyFourMicroseconds() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10000);
+		histogram.record(64000);
+		histogram.record(65000);
+		histogram.record(3600000000000L);
+
+		assertEquals("0.000064", histogram.getUpperBound(0));
+		assertEquals("0.000128", histogram.getUpperBound(1));
+		assertEquals("+Inf", histogram.getUpperBound(histogram.getBucketCount() - 1));
+		assertEquals(2, histogram.getCount(0));
+		assertEquals(1, histogram.getCount(1));
+		assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+		assertEquals(4, histogram.getTotalCount());
+	}
+
+	@Test
+	public void countsRequestsBytesAndStatus() throws Exception {
+		assertEquals(200, get("/scoreboard"));
+		assertEquals(200, get("/scoreboard"));
+		assertEquals(404, get("/missing"));
+
+		ServingCore.Endpoint scoreboard = awaitServed("/scoreboard", 2);
+		assertEquals(2, scoreboard.getServed());
+		assertEquals(10, scoreboard.getBytesSent());
+		assertEquals(2, scoreboard.getResponses(2));
+		assertEquals(2, scoreboard.getDuration().getTotalCount());
+		assertEquals(2, scoreboard.getTimeToFirstByte().getTotalCount());
+		assertEquals(1, awaitServed("/missing", 1).getResponses(4));
+	}
+
+	@Test
+	public void rendersPrometheusText() throws Exception {
+		get("/scoreboard");
+		awaitServed("/scoreboard", 1);
+		String text = new MetricsHandler(core, "/metrics").render();
+
+		assertTrue(text.contains("# TYPE katalyzer_http_requests_total counter\n"));
+		assertTrue(text.contains("katalyzer_http_requests_total{route=\"/scoreboard\"} 1\n"));
+		assertTrue(text.contains("katalyzer_http_responses_total{route=\"/scoreboard\",code=\"2xx\"} 1\n"));
+		assertTrue(text.contains("katalyzer_http_response_bytes_total{route=\"/scoreboard\"} 5\n"));
+		assertTrue(text.contains("katalyzer_http_request_duration_seconds_bucket{route=\"/scoreboard\",le=\"+Inf\"} 1\n"));
+		assertTrue(text.contains("katalyzer_http_request_duration_seconds_count{route=\"/scoreboard\"} 1\n"));
+		assertTrue(text.contains("katalyzer_http_queued_requests 0\n"));
+	}
+}
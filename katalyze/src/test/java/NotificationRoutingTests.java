@@ -0,0 +1,70 @@
+package tests;
+
+import model.Contest;
+import model.EventImportance;
+import model.LoggableEvent;
+import model.NotificationRouter;
+import model.NotificationSubscription;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class NotificationRoutingTests {
+	Contest contest;
+	NotificationRouter router;
+
+	@Before
+	public void setUp() {
+		contest = new Contest();
+		router = new NotificationRouter();
+	}
+
+	private LoggableEvent event(int minutes, EventImportance importance, String category) {
+		Map<String, String> supplements = null;
+		if (category != null) {
+			supplements = new HashMap<String, String>();
+			supplements.put("category", category);
+		}
+		return new LoggableEvent(contest, null, minutes * 60000, Instant.now(), "msg", importance, supplements);
+	}
+
+	@Test
+	public void targetsOnlyReceiveSubscribedImportances() {
+		List<LoggableEvent> breaking = new ArrayList<LoggableEvent>();
+		List<LoggableEvent> everything = new ArrayList<LoggableEvent>();
+		router.add(breaking::add, NotificationSubscription.upTo(EventImportance.Breaking));
+		router.add(everything::add);
+
+		router.dispatch(event(1, EventImportance.Breaking, null));
+		router.dispatch(event(2, EventImportance.Normal, null));
+		router.dispatch(event(3, EventImportance.Whatever, null));
+
+		assertEquals(1, breaking.size());
+		assertEquals(3, everything.size());
+	}
+
+	@Test
+	public void categoriesAndSuppressionAreRespected() {
+		List<LoggableEvent> noHumans = new ArrayList<LoggableEvent>();
+		List<LoggableEvent> onlyHumans = new ArrayList<LoggableEvent>();
+		router.add(noHumans::add, NotificationSubscription.all().withoutCategories("human").suppressUntil(10));
+		router.add(onlyHumans::add, NotificationSubscription.all().onlyCategories("human"));
+
+		router.dispatch(event(5, EventImportance.Normal, null));
+		router.dispatch(event(20, EventImportance.Normal, null));
+		router.dispatch(event(20, EventImportance.AnalystMessage, "human"));
+		router.dispatch(event(20, EventImportance.AnalystMessage, "digest"));
+
+		assertEquals(2, noHumans.size());
+		assertEquals("auto", noHumans.get(0).getCategory());
+		assertEquals("digest", noHumans.get(1).getCategory());
+		assertEquals(1, onlyHumans.size());
+	}
+}
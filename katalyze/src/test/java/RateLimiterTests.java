@@ -0,0 +1,108 @@
+package tests;
+
+import io.RateLimitedNotificationTarget;
+import io.TwitterNotificationTarget;
+import model.Contest;
+import model.EventImportance;
+import model.LoggableEvent;
+import model.NotificationRouter;
+import org.junit.Before;
+import org.junit.Test;
+import twitter4j.Twitter;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTests {
+	Contest contest;
+	long now;
+	List<String> tweets;
+	List<LoggableEvent> received;
+
+	@Before
+	public void setUp() {
+		contest = new Contest();
+		now = 0;
+		tweets = new ArrayList<String>();
+		received = new ArrayList<LoggableEvent>();
+	}
+
+	private Twitter localTwitter() {
+		return (Twitter) Proxy.newProxyInstance(Twitter.class.getClassLoader(), new Class<?>[] { Twitter.class },
+				(proxy, method, args) -> {
+					if ("updateStatus".equals(method.getName())) {
+						tweets.add((String) args[0]);
+					}
+					return null;
+				});
+	}
+
+	private LoggableEvent event(String message, EventImportance importance) {
+		return new LoggableEvent(contest, null, (int) now, Instant.now(), message, importance, null);
+	}
+
+	@Test
+	public void burstIsSentAndRestWaitsForTokens() {
+		TwitterNotificationTarget twitter = new TwitterNotificationTarget(localTwitter(), "#test", 0);
+		RateLimitedNotificationTarget limiter = new RateLimitedNotificationTarget(twitter, 2, 60, 600000,
+				EventImportance.Breaking, EventImportance.Normal, () -> now);
+		NotificationRouter router = new NotificationRouter();
+		router.add(limiter);
+
+		router.dispatch(event("one", EventImportance.Breaking));
+		router.dispatch(event("two", EventImportance.Breaking));
+		router.dispatch(event("three", EventImportance.Breaking));
+		router.dispatch(event("ignored", EventImportance.Normal));
+
+		assertEquals(2, tweets.size());
+		assertEquals(1, limiter.getQueueLength());
+
+		now += 60000;
+		limiter.drain();
+		assertEquals(3, tweets.size());
+		assertEquals("three #test", tweets.get(2));
+	}
+
+	@Test
+	public void importantEventsGoFirstAndLowPriorityIsMerged() {
+		RateLimitedNotificationTarget limiter = new RateLimitedNotificationTarget(received::add, 1, 60, 600000,
+				EventImportance.Whatever, EventImportance.Normal, () -> now);
+
+		limiter.notify(event("first", EventImportance.Normal));
+		limiter.notify(event("low 1", EventImportance.Normal));
+		limiter.notify(event("low 2", EventImportance.Whatever));
+		limiter.notify(event("breaking", EventImportance.Breaking));
+		assertEquals(1, received.size());
+
+		now += 60000;
+		limiter.drain();
+		assertEquals(2, received.size());
+		assertEquals("breaking", received.get(1).message);
+
+		now += 60000;
+		limiter.drain();
+		assertEquals(3, received.size());
+		assertEquals("low 1 | low 2", received.get(2).message);
+		assertEquals("2", received.get(2).supplements.get("count"));
+		assertEquals(2, limiter.getMergedCount());
+		assertEquals(0, limiter.getQueueLength());
+	}
+
+	@Test
+	public void staleEventsAreDropped() {
+		RateLimitedNotificationTarget limiter = new RateLimitedNotificationTarget(received::add, 1, 1, 5000,
+				EventImportance.Whatever, EventImportance.Whatever, () -> now);
+
+		limiter.notify(event("sent", EventImportance.Breaking));
+		limiter.notify(event("too late", EventImportance.Breaking));
+
+		now += 3600000;
+		limiter.drain();
+		assertEquals(1, received.size());
+		assertEquals(1, limiter.getDroppedCount());
+	}
+}
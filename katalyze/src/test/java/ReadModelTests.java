@@ -0,0 +1,83 @@
+package tests;
+
+import legacyfeed.SimpleMessage;
+import messageHandlers.TeamHandler;
+import model.Contest;
+import model.InitialSubmission;
+import model.ReadModel;
+import model.Score;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReadModelTests extends ContestSimulatorTest {
+
+	@Before
+	public void setUp() {
+		InitContest(1, 3);
+		Accepted(teams[0], problems[0], 10);
+		contest.publishReadModel();
+	}
+
+	@Test
+	public void snapshotIgnoresLaterChangesUntilPublished() {
+		ReadModel snapshot = contest.getReadModel();
+		Score before = snapshot.viewOf(teams[1]).getScore();
+		assertEquals(0, before.submissionCount(problems[0]));
+
+		teams[1].freshSubmission(new InitialSubmission("late", teams[1], problems[0], "Ada", 20 * 60000));
+		assertEquals(0, snapshot.viewOf(teams[1]).getScore().submissionCount(problems[0]));
+		assertNull(snapshot.viewOf(teams[1]).getMainLanguage());
+
+		contest.publishReadModel();
+		ReadModel next = contest.getReadModel();
+		assertTrue(next.getVersion() > snapshot.getVersion());
+		assertEquals("Ada", next.viewOf(teams[1]).getMainLanguage());
+		assertEquals("Ada", next.viewOf(teams[1]).languageFor(problems[0]));
+	}
+
+	@Test
+	public void unchangedTeamsShareTheirFrozenState() {
+		ReadModel snapshot = contest.getReadModel();
+		WrongAnswer(teams[2], problems[0], 30);
+		contest.publishReadModel();
+		ReadModel next = contest.getReadModel();
+
+		assertSame(snapshot.viewOf(teams[0]), next.viewOf(teams[0]));
+		assertNotSame(snapshot.viewOf(teams[2]), next.viewOf(teams[2]));
+		assertEquals(1, next.viewOf(teams[2]).getScore().submissionCount(problems[0]));
+		assertEquals(1, next.getStandings().rankOf(teams[0]));
+	}
+
+	@Test
+	public void timeAloneDoesNotRebuildStandings() {
+		ReadModel snapshot = contest.getReadModel();
+		contest.publishReadModel();
+		assertSame(snapshot, contest.getReadModel());
+
+		contest.updateTime(45 * 60000);
+		contest.publishReadModel();
+		ReadModel later = contest.getReadModel();
+		assertEquals(45, later.getMinutesFromStart());
+		assertSame(snapshot.getStandings(), later.getStandings());
+	}
+
+	@Test
+	public void teamsFromTheLegacyFeedReachTheSnapshot() {
+		contest = new Contest();
+		TeamHandler handler = new TeamHandler(null);
+		handler.connectTo(contest);
+		for (String id : new String[] { "1", "2" }) {
+			SimpleMessage message = new SimpleMessage("team");
+			message.put("id", id);
+			message.put("name", "Team " + id);
+			handler.process(message);
+		}
+
+		contest.publishReadModel();
+		ReadModel snapshot = contest.getReadModel();
+		assertEquals(2, snapshot.getTeams().size());
+		assertEquals(2, snapshot.getStandings().size());
+	}
+}
@@ -0,0 +1,182 @@
+package tests;
+
+import clics.ExtendedScoreDump;
+import io.EntityOperation;
+import model.*;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import model.DocumentGraph;
+import web.JsonWriter;
+import web.WebPublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class ScoreDumpTests extends ContestSimulatorTest {
+	WebPublisher publisher;
+
+	@Before
+	public void setUp() {
+		contest = new Contest();
+		String[] labels = { "A", "B", "C" };
+		for (int i = 0; i < labels.length; i++) {
+			contest.addProblem(new Problem(Integer.toString(i + 1), "Problem " + labels[i], labels[i], null));
+		}
+		contest.registerTeam("1", "Plain", null, new Group[0], new String[] { "http://cam/1" }, new String[0], false, EntityOperation.CREATE);
+		contest.registerTeam("2", "Quo\"te </script> \u00e9\u2028\n", null, new Group[0], new String[] { "null", "[1]" }, null, false, EntityOperation.CREATE);
+		contest.registerTeam("3", "[brackets]", null, new Group[0], new String[0], new String[] { "{\"a\":1}" }, false, EntityOperation.CREATE);
+		teams = contest.getTeams();
+		problems = contest.getProblems().toArray(new Problem[0]);
+
+		Accepted(teams[0], problems[0], 10);
+		WrongAnswer(teams[1], problems[0], 12);
+		Accepted(teams[1], problems[0], 20);
+		Accepted(teams[1], problems[2], 31);
+		WrongAnswer(teams[2], problems[1], 40);
+		contest.publishReadModel();
+
+		publisher = new WebPublisher(false);
+	}
+
+	private String published(String url) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		publisher.get(url).writeContents(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/* The scoreboard as it used to be built with json-lib */
+	private JSONArray referenceScoreboard(int minutesFromStart) {
+		ScoreTableComparer comparator = new ScoreTableComparer();
+		Standings standings = contest.getStandings();
+		ArrayList<Score> scoresAbove = new ArrayList<Score>();
+		JSONArray result = new JSONArray();
+		for (Score score : standings) {
+			scoresAbove.add(score);
+			Team team = score.getTeam();
+			JSONArray cells = new JSONArray();
+			int place = scoresAbove.size();
+			for (Problem p : contest.getProblems()) {
+				boolean isSolved = score.isSolved(p);
+				JSONObject cell = new JSONObject()
+					.element("problem_id", p.getId())
+					.element("label", p.getLabel())
+					.element("num_judged", score.submissionCount(p))
+					.element("solved", isSolved)
+					.element("time", score.scoreContribution(p));
+				if (score.lastSubmissionTime(p) != 0) {
+					cell.element("lastUpd", score.lastSubmissionTime(p));
+				}
+				if (!isSolved) {
+					ScoreTableEntry fake = FakeScore.PretendProblemSolved(score, p, minutesFromStart);
+					JSONObject potential = new JSONObject();
+					while (place > 0 && comparator.compare(fake, scoresAbove.get(place - 1)) <= 0) {
+						place--;
+					}
+					while (place < scoresAbove.size() && comparator.compare(fake, scoresAbove.get(place)) > 0) {
+						place++;
+					}
+					potential.element("rank", place + 1);
+					if (place < scoresAbove.size() && scoresAbove.get(place).getNumberOfSolvedProblems() == fake.getNumberOfSolvedProblems()) {
+						potential.element("before", scoresAbove.get(place).getTimeIncludingPenalty() - fake.getTimeIncludingPenalty());
+					}
+					cell.element("potential", potential);
+				}
+				cell.element("lang", team.languageFor(p));
+				cells.add(cell);
+			}
+			JSONObject row = new JSONObject()
+				.element("rank", standings.rankOf(team))
+				.element("team_id", team.getId())
+				.element("main_lang", team.getMainLanguage())
+				.element("score", new JSONObject()
+					.element("num_solved", score.getNumberOfSolvedProblems())
+					.element("total_time", score.getTimeIncludingPenalty()))
+				.element("problems", cells);
+			if (result.isEmpty()) {
+				row.put("contestTime", contest.getMinutesFromStart());
+			}
+			result.add(row);
+		}
+		return result;
+	}
+
+	private JSONArray referenceTeams() {
+		JSONArray result = new JSONArray();
+		for (Team team : contest.getTeams()) {
+			JSONObject target = new JSONObject();
+			target.put("id", team.getId());
+			target.put("name", team.getName());
+			target.put("webcams", team.getVideoLinks());
+			target.put("desktops", team.getDesktopLinks());
+			Organization org = team.getOrganization();
+			if (org != null) {
+				target.put("organization", org.getFullName());
+				target.put("displayname", org.getDisplayName());
+			}
+			result.add(target);
+		}
+		return result;
+	}
+
+	@Test
+	public void sameBytesAsJsonLib() throws IOException {
+		ExtendedScoreDump dump = new ExtendedScoreDump(contest, publisher);
+		dump.execute(45);
+		assertEquals(referenceScoreboard(45).toString(), published("/scoreboard"));
+		assertEquals(referenceTeams().toString(), published("/teams"));
+
+		// The reused buffer must not leak contents between publications
+		dump.execute(46);
+		assertEquals(referenceScoreboard(46).toString(), published("/scoreboard"));
+	}
+
+	@Test
+	public void writerEscapesLikeJsonLib() {
+		String[] samples = { "plain", "a\"b\\c", "</tag>", "a/b", "\u0001\u001f\b\t\n\f\r", "\u00e9\u2028\ud83d\ude00", "null", "[1, 2]", "{\"a\":\"b\"}", "" };
+		JsonWriter.Name key = new JsonWriter.Name("k");
+		for (String sample : samples) {
+			JsonWriter writer = new JsonWriter(4);
+			writer.beginObject().field(key, sample).field(key, -42).field(key, true).endObject();
+			String expected = new JSONObject().element("k", sample).toString();
+			expected = expected.substring(0, expected.length() - 1) + ",\"k\":-42,\"k\":true}";
+			assertEquals(expected, new String(writer.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
+
+	private DocumentGraph.Node document(String name) {
+		for (DocumentGraph.Node node : contest.getAnalyzer().getDocumentGraph().getNodes()) {
+			if (node.getName().equals(name)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void regeneratesOnlyAffectedDocuments() {
+		ExtendedScoreDump dump = new ExtendedScoreDump(contest, publisher);
+		dump.execute(45);
+		dump.execute(45);
+		DocumentGraph.Node scoreboard = document("/scoreboard");
+		DocumentGraph.Node teamsDocument = document("/teams");
+		assertEquals(1, scoreboard.getRegenerations());
+		assertEquals(1, teamsDocument.getRegenerations());
+
+		Accepted(teams[0], problems[1], 50);
+		dump.execute(50);
+		assertEquals(2, scoreboard.getRegenerations());
+		assertEquals(1, teamsDocument.getRegenerations());
+
+		contest.registerTeam("4", "Late", null, new Group[0], new String[0], new String[0], false, EntityOperation.CREATE);
+		contest.publishReadModel();
+		dump.execute(50);
+		assertEquals(3, scoreboard.getRegenerations());
+		assertEquals(2, teamsDocument.getRegenerations());
+	}
+}
@@ -0,0 +1,108 @@
+package tests;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+import web.ScoreboardHistory;
+
+import static org.junit.Assert.*;
+
+public class ScoreboardHistoryTests {
+
+	private static JSONObject row(String team, int rank, boolean solvedA, boolean solvedB) {
+		JSONArray problems = new JSONArray();
+		problems.add(new JSONObject().element("problem_id", "a").element("solved", solvedA));
+		problems.add(new JSONObject().element("problem_id", "b").element("solved", solvedB));
+		return new JSONObject()
+			.element("rank", rank)
+			.element("team_id", team)
+			.element("problems", problems);
+	}
+
+	private static JSONArray table(JSONObject... rows) {
+		JSONArray target = new JSONArray();
+		for (JSONObject row : rows) {
+			target.add(row);
+		}
+		return target;
+	}
+
+	private static JSONObject since(ScoreboardHistory history, long version) {
+		return JSONObject.fromObject(history.since(version).toString());
+	}
+
+	@Test
+	public void onlyChangedRowsAndCells() {
+		ScoreboardHistory history = new ScoreboardHistory(10);
+		assertEquals(1, history.update(table(row("1", 1, false, false), row("2", 1, false, false))));
+		assertEquals(1, history.update(table(row("1", 1, false, false), row("2", 1, false, false))));
+		assertEquals(2, history.update(table(row("2", 1, false, true), row("1", 2, false, false))));
+
+		JSONObject delta = since(history, 1);
+		assertEquals(2, delta.getLong("version"));
+		assertFalse(delta.getBoolean("full"));
+		JSONArray rows = delta.getJSONArray("rows");
+		assertEquals(2, rows.size());
+
+		JSONObject team2 = rows.getJSONObject(0);
+		assertEquals("2", team2.getString("team_id"));
+		assertFalse(team2.containsKey("rank"));
+		assertEquals(1, team2.getJSONArray("problems").size());
+		assertEquals("b", team2.getJSONArray("problems").getJSONObject(0).getString("problem_id"));
+
+		JSONObject team1 = rows.getJSONObject(1);
+		assertEquals(2, team1.getInt("rank"));
+		assertFalse(team1.containsKey("problems"));
+
+		assertTrue(since(history, 2).getJSONArray("rows").isEmpty());
+	}
+
+	@Test
+	public void mergesDeltasOverSeveralVersions() {
+		ScoreboardHistory history = new ScoreboardHistory(10);
+		history.update(table(row("1", 1, false, false)));
+		history.update(table(row("1", 1, true, false)));
+		history.update(table(row("1", 1, true, true)));
+
+		JSONArray rows = since(history, 1).getJSONArray("rows");
+		assertEquals(1, rows.size());
+		JSONArray cells = rows.getJSONObject(0).getJSONArray("problems");
+		assertEquals(2, cells.size());
+		assertTrue(cells.getJSONObject(0).getBoolean("solved"));
+		assertTrue(cells.getJSONObject(1).getBoolean("solved"));
+	}
+
+	@Test
+	public void fullSnapshotOutsideWindow() {
+		ScoreboardHistory history = new ScoreboardHistory(2);
+		history.update(table(row("1", 1, false, false)));
+		history.update(table(row("1", 1, true, false)));
+		history.update(table(row("1", 1, true, true)));
+		history.update(table(row("1", 2, true, true)));
+
+		assertTrue(since(history, 1).getBoolean("full"));
+		assertFalse(since(history, 2).getBoolean("full"));
+		JSONObject snapshot = since(history, 0);
+		assertTrue(snapshot.getBoolean("full"));
+		assertEquals(4, snapshot.getLong("version"));
+		assertEquals(2, snapshot.getJSONArray("rows").getJSONObject(0).getInt("rank"));
+	}
+
+	@Test
+	public void waitersWakeOnNewVersion() throws InterruptedException {
+		ScoreboardHistory history = new ScoreboardHistory(10);
+		assertEquals(0, history.awaitVersionAfter(0, 10));
+
+		Thread publisher = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return;
+			}
+			history.update(table(row("1", 1, false, false)));
+		});
+		publisher.start();
+		assertEquals(1, history.awaitVersionAfter(0, 5000));
+		publisher.join();
+	}
+}
@@ -0,0 +1,104 @@
+package tests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import web.ServingCore;
+
+import static org.junit.Assert.*;
+
+public class ServingCoreTests {
+	ServingCore core = new ServingCore(1, 1, 2, false);
+	CountDownLatch release = new CountDownLatch(1);
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		core.shutdown();
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void streamsBeyondLimitAreRefused() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(2);
+		for (int i = 0; i < 2; i++) {
+			assertTrue(core.stream("/events", () -> {
+				started.countDown();
+				awaitRelease();
+			}));
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertFalse(core.stream("/events", () -> fail("must not run")));
+
+		ServingCore.Endpoint endpoint = core.getEndpoints().get("/events");
+		assertEquals(2, endpoint.getActive());
+		assertEquals(1, endpoint.getRejected());
+
+		release.countDown();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (core.getOpenStreams() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, core.getOpenStreams());
+		assertEquals(0, endpoint.getActive());
+		assertEquals(2, endpoint.getPeak());
+		assertEquals(2, endpoint.getServed());
+	}
+
+	@Test
+	public void requestsBeyondQueueAreShedOffTheCallingThread() throws Exception {
+		Executor executor = core.getRequestExecutor();
+		final CountDownLatch busy = new CountDownLatch(1);
+		executor.execute(() -> {
+			busy.countDown();
+			awaitRelease();
+		});
+		assertTrue(busy.await(5, TimeUnit.SECONDS));
+		executor.execute(() -> { });
+		assertEquals(1, core.getQueuedRequests());
+
+		final AtomicBoolean shed = new AtomicBoolean();
+		final CountDownLatch answered = new CountDownLatch(1);
+		final Thread caller = Thread.currentThread();
+		executor.execute(() -> {
+			shed.set(core.isShedding() && Thread.currentThread() != caller);
+			answered.countDown();
+		});
+		assertTrue(answered.await(5, TimeUnit.SECONDS));
+		assertTrue(shed.get());
+		assertFalse(core.isShedding());
+	}
+
+	@Test
+	public void slowShedRequestsDontBlockTheCaller() throws Exception {
+		Executor executor = core.getRequestExecutor();
+		executor.execute(this::awaitRelease);
+		executor.execute(() -> { });
+		// Every request past the queue blocks, as a client that never sends its headers would
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 10; i++) {
+			executor.execute(this::awaitRelease);
+		}
+		assertTrue(System.currentTimeMillis() - start < 1000);
+	}
+
+	@Test
+	public void shortRequestsAreCounted() throws Exception {
+		core.serve("documents", () -> assertEquals(1, core.getEndpoints().get("documents").getActive()));
+		ServingCore.Endpoint endpoint = core.getEndpoints().get("documents");
+		assertEquals(0, endpoint.getActive());
+		assertEquals(1, endpoint.getServed());
+	}
+}
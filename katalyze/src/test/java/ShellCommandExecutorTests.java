@@ -0,0 +1,65 @@
+package tests;
+
+import org.junit.After;
+import org.junit.Test;
+
+import model.ShellCommandExecutor;
+
+import static org.junit.Assert.*;
+
+public class ShellCommandExecutorTests {
+	ShellCommandExecutor executor;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		executor.stop();
+	}
+
+	private void awaitExecuted(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (executor.getExecutedCount() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void killsCommandsThatTimeOut() throws InterruptedException {
+		executor = new ShellCommandExecutor(1, 4, 0, 200);
+		long start = System.currentTimeMillis();
+		assertTrue(executor.submit("sleep 30"));
+		awaitExecuted(1);
+
+		assertEquals(1, executor.getExecutedCount());
+		assertEquals(1, executor.getFailedCount());
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+
+	@Test
+	public void coalescesIdenticalCommands() throws InterruptedException {
+		executor = new ShellCommandExecutor(2, 4, 60000, 5000);
+		assertTrue(executor.submit("true"));
+		assertFalse(executor.submit("true"));
+		assertTrue(executor.submit("true 2"));
+		awaitExecuted(2);
+
+		assertEquals(1, executor.getCoalescedCount());
+		assertEquals(2, executor.getExecutedCount());
+		assertEquals(0, executor.getFailedCount());
+	}
+
+	@Test
+	public void dropsCommandsBeyondTheQueueAndAllowsRetries() throws InterruptedException {
+		executor = new ShellCommandExecutor(1, 1, 60000, 5000);
+		// The first command starts a worker directly, the second one waits in the queue
+		assertTrue(executor.submit("sleep 0.5"));
+		assertTrue(executor.submit("sleep 0.2"));
+		assertFalse(executor.submit("true"));
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(0, executor.getCoalescedCount());
+
+		awaitExecuted(2);
+		assertTrue(executor.submit("true"));
+		awaitExecuted(3);
+		assertEquals(3, executor.getExecutedCount());
+	}
+}
@@ -0,0 +1,130 @@
+package tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import clics.ExtendedScoreDump;
+import legacyfeed.SimpleMessage;
+import messageHandlers.TeamHandler;
+import model.Contest;
+import net.sf.json.JSONArray;
+import web.WebPublisher;
+
+import static org.junit.Assert.*;
+
+public class TeamHandlerTests {
+	/* Rows of the teams table: team_id -> school_short */
+	Map<Integer, String> table = new LinkedHashMap<Integer, String>();
+	List<String> queries = new ArrayList<String>();
+	Contest contest = new Contest();
+
+	@Before
+	public void setUp() {
+		table.put(1, "KTH");
+		table.put(2, "NTNU");
+	}
+
+	private Connection connection() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+			(proxy, method, args) -> method.getName().equals("createStatement") ? statement() : null);
+	}
+
+	private Statement statement() {
+		return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+			(proxy, method, args) -> {
+				if (method.getName().equals("executeQuery")) {
+					queries.add((String) args[0]);
+					return results(new LinkedHashMap<Integer, String>(table).entrySet().iterator());
+				}
+				return null;
+			});
+	}
+
+	private ResultSet results(Iterator<Map.Entry<Integer, String>> rows) {
+		Object[] current = new Object[1];
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+			(proxy, method, args) -> {
+				@SuppressWarnings("unchecked")
+				Map.Entry<Integer, String> row = (Map.Entry<Integer, String>) current[0];
+				switch (method.getName()) {
+				case "next":
+					current[0] = rows.hasNext() ? rows.next() : null;
+					return current[0] != null;
+				case "getInt":
+					return row.getKey();
+				case "getString":
+					return row.getValue();
+				default:
+					return null;
+				}
+			});
+	}
+
+	private void team(TeamHandler handler, String id) {
+		SimpleMessage message = new SimpleMessage("team");
+		message.put("id", id);
+		message.put("name", "Team " + id);
+		handler.process(message);
+	}
+
+	@Test
+	public void loadsAllShortNamesWithOneQuery() throws InvalidKeyException {
+		TeamHandler handler = new TeamHandler(connection());
+		handler.connectTo(contest);
+		team(handler, "1");
+		team(handler, "2");
+
+		assertEquals(1, queries.size());
+		assertEquals("KTH", contest.getTeam("1").getShortName());
+		assertEquals("NTNU", contest.getTeam("2").getShortName());
+	}
+
+	@Test
+	public void reloadsOnceForAnUnknownTeam() throws InvalidKeyException {
+		TeamHandler handler = new TeamHandler(connection());
+		handler.connectTo(contest);
+		table.put(3, "LiU");
+		team(handler, "3");
+		assertEquals(2, queries.size());
+		assertEquals("LiU", contest.getTeam("3").getShortName());
+
+		team(handler, "4");
+		team(handler, "4");
+		assertEquals(3, queries.size());
+		assertEquals("Team 4", contest.getTeam("4").getShortName());
+	}
+
+	@Test
+	public void republishesTeamsAddedByTheLegacyFeed() throws IOException {
+		WebPublisher publisher = new WebPublisher(false);
+		ExtendedScoreDump dump = new ExtendedScoreDump(contest, publisher);
+		dump.publishStandings();
+
+		TeamHandler handler = new TeamHandler(connection());
+		handler.connectTo(contest);
+		team(handler, "1");
+		team(handler, "2");
+		contest.publishReadModel();
+		dump.publishStandings();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		publisher.get("/teams").writeContents(out);
+		JSONArray teams = JSONArray.fromObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+		assertEquals(2, teams.size());
+		assertEquals("1", teams.getJSONObject(0).getString("id"));
+	}
+}
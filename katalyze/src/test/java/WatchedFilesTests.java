@@ -0,0 +1,71 @@
+package tests;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import web.WatchedFiles;
+import web.WebDocument;
+import web.WebPublisher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class WatchedFilesTests {
+	File directory;
+	File file;
+	WebPublisher publisher;
+	WatchedFiles files;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("watched").toFile();
+		file = new File(directory, "scores.js");
+		Files.write(file.toPath(), "var version = 1;".getBytes(StandardCharsets.UTF_8));
+		publisher = new WebPublisher(true);
+		files = new WatchedFiles(publisher, 50);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		files.stop();
+		file.delete();
+		directory.delete();
+	}
+
+	private String contents(String url) throws IOException {
+		WebDocument doc = publisher.get(url);
+		if (doc == null) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		doc.writeContents(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void servesFromMemoryAndPicksUpChanges() throws Exception {
+		files.publish("/web/scores.js", "text/javascript", file.getPath());
+		files.publish("/missing.js", "text/javascript", new File(directory, "missing.js").getPath());
+		files.start();
+
+		assertEquals("var version = 1;", contents("/web/scores.js"));
+		assertEquals(16, publisher.get("/web/scores.js").getContentLength());
+		assertNull(publisher.get("/missing.js"));
+
+		file.delete();
+		// Served from memory even while the file is gone
+		assertEquals("var version = 1;", contents("/web/scores.js"));
+
+		Files.write(file.toPath(), "var version = 22;".getBytes(StandardCharsets.UTF_8));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!"var version = 22;".equals(contents("/web/scores.js")) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals("var version = 22;", contents("/web/scores.js"));
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Decoder for the binary scoreboard served at /scoreboard.bin
+ * (content type application/vnd.katalyzer.scoreboard). The format is described in
+ * clics/BinaryScoreDump.java.
+ *
+ * decodeBinaryScoreboard(arrayBuffer) returns the same rows as the JSON /scoreboard,
+ * with the read model version and contest time attached to the array:
+ *
+ *   fetch(url + "/scoreboard.bin")
+ *     .then(function(response) { return response.arrayBuffer(); })
+ *     .then(function(buffer) { var rows = decodeBinaryScoreboard(buffer); ... });
+ */
+(function() {
+	var utf8 = new TextDecoder("utf-8");
+
+	function Reader(buffer) {
+		var bytes = new Uint8Array(buffer);
+		var offset = 0;
+
+		this.byte = function() {
+			if (offset >= bytes.length) {
+				throw new Error("Truncated scoreboard");
+			}
+			return bytes[offset++];
+		};
+
+		// Unsigned LEB128; multiplication keeps values above 2^31 exact
+		this.varint = function() {
+			var value = 0;
+			var scale = 1;
+			var b;
+			do {
+				b = this.byte();
+				value += (b & 0x7f) * scale;
+				scale *= 128;
+			} while (b & 0x80);
+			return value;
+		};
+
+		this.signed = function() {
+			var value = this.varint();
+			return (value % 2 == 0) ? value / 2 : -(value + 1) / 2;
+		};
+
+		this.string = function() {
+			var length = this.varint();
+			if (offset + length > bytes.length) {
+				throw new Error("Truncated scoreboard");
+			}
+			var value = utf8.decode(bytes.subarray(offset, offset + length));
+			offset += length;
+			return value;
+		};
+	}
+
+	var SOLVED = 1, HAS_POTENTIAL = 2, HAS_BEFORE = 4, HAS_LANGUAGE = 8;
+
+	function decodeBinaryScoreboard(buffer) {
+		var reader = new Reader(buffer);
+		if (reader.byte() != 0x4b || reader.byte() != 0x53 || reader.byte() != 0x42) {
+			throw new Error("Not a binary scoreboard");
+		}
+		var formatVersion = reader.byte();
+		if (formatVersion != 2) {
+			throw new Error("Unsupported scoreboard format " + formatVersion);
+		}
+
+		var version = reader.varint();
+		var contestTime = reader.signed();
+
+		var problems = [];
+		var problemCount = reader.varint();
+		for (var p = 0; p < problemCount; p++) {
+			problems.push({ id: reader.string(), label: reader.string() });
+		}
+
+		var languages = [null];
+		var languageCount = reader.varint();
+		for (var l = 0; l < languageCount; l++) {
+			languages.push(reader.string());
+		}
+
+		var rows = [];
+		var rowCount = reader.varint();
+		for (var r = 0; r < rowCount; r++) {
+			var teamId = reader.string();
+			var row = { rank: reader.varint(), team_id: teamId };
+			var score = { num_solved: reader.varint(), total_time: reader.signed() };
+			var mainLanguage = languages[reader.varint()];
+			if (mainLanguage !== null) {
+				row.main_lang = mainLanguage;
+			}
+			row.score = score;
+			row.problems = [];
+			for (var c = 0; c < problemCount; c++) {
+				var flags = reader.byte();
+				var cell = {
+					problem_id: problems[c].id,
+					label: problems[c].label,
+					num_judged: reader.varint(),
+					solved: (flags & SOLVED) != 0,
+					time: reader.signed()
+				};
+				var lastUpd = reader.signed();
+				if (lastUpd != 0) {
+					cell.lastUpd = lastUpd;
+				}
+				if (flags & HAS_POTENTIAL) {
+					cell.potential = { rank: reader.varint() };
+					if (flags & HAS_BEFORE) {
+						cell.potential.before = reader.signed();
+					}
+				}
+				if (flags & HAS_LANGUAGE) {
+					cell.lang = languages[reader.varint()];
+				}
+				row.problems.push(cell);
+			}
+			if (r == 0) {
+				row.contestTime = contestTime;
+			}
+			rows.push(row);
+		}
+
+		rows.version = version;
+		rows.contestTime = contestTime;
+		return rows;
+	}
+
+	window.decodeBinaryScoreboard = decodeBinaryScoreboard;
+})();
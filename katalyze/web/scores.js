@@ -265,8 +265,70 @@
 			});
 		}
 		
+		// Scoreboard messages pushed by the server are either the full table or the
+		// rows (and problem cells) that changed since the previous message.
+		var scoreboard = [];
+		var contestTime = 0;
+		var applyScoreboardMessage = function(message) {
+			if (message.full) {
+				scoreboard = message.rows;
+			} else {
+				$.each(message.rows, function(i, delta) {
+					var row = null;
+					$.each(scoreboard, function(j, candidate) {
+						if (candidate.team_id == delta.team_id) {
+							row = candidate;
+						}
+					});
+					if (!row) {
+						scoreboard.push(delta);
+						return;
+					}
+					$.each(delta, function(key, value) {
+						if (key == "problems") {
+							$.each(value, function(k, cell) {
+								$.each(row.problems, function(l, existing) {
+									if (existing.problem_id == cell.problem_id) {
+										row.problems[l] = cell;
+									}
+								});
+							});
+						} else {
+							row[key] = value;
+						}
+					});
+				});
+				scoreboard.sort(function(a, b) { return a.rank - b.rank; });
+			}
+			// The contest time travels with whichever row used to be first
+			$.each(scoreboard, function(i, row) {
+				if (row.contestTime) {
+					contestTime = Math.max(contestTime, row.contestTime);
+				}
+			});
+			if (scoreboard.length > 0) {
+				scoreboard[0].contestTime = contestTime;
+			}
+			updater.update(scoreboard);
+		}
+
 		refreshData();
-		window.setInterval(refreshData, 10000);
+		if (window.EventSource) {
+			var events = new EventSource(updater.dataSource()+"/scoreboard-events");
+			events.addEventListener("scoreboard", function(e) {
+				applyScoreboardMessage(JSON.parse(e.data));
+			});
+			// Team names still change rarely enough to be polled
+			window.setInterval(function() {
+				$.ajax({
+					url: updater.dataSource()+"/teams",
+					success: updater.updateTeams,
+					dataType: "json"
+				});
+			}, 10000);
+		} else {
+			window.setInterval(refreshData, 10000);
+		}
 		
 	
 	});